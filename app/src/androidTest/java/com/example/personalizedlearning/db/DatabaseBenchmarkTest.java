@@ -0,0 +1,1141 @@
+package com.example.personalizedlearning.db;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Debug;
+import android.text.TextPaint;
+import android.util.Base64;
+import android.util.Log;
+
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.personalizedlearning.utils.CompletedTopicSet;
+import com.example.personalizedlearning.utils.MappedKeyValueStore;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * On-device database benchmarks. Timings are written to logcat under the
+ * "DatabaseBenchmark" tag; assertions only check correctness.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseBenchmarkTest {
+    private static final String TAG = "DatabaseBenchmark";
+    private static final String DB_NAME = "benchmark_learning_db";
+    private static final String CONTENT_DB_NAME = "benchmark_content_db";
+
+    private Context context;
+    private DatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        context.deleteDatabase(CONTENT_DB_NAME);
+        dbHelper = new DatabaseHelper(context, DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+        context.deleteDatabase(DB_NAME);
+        context.deleteDatabase(CONTENT_DB_NAME);
+    }
+
+    @Test
+    public void progressUpsertAt100kRows() {
+        final int users = 1000;
+        final int topicsPerUser = 100;
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        createUsers(dbHelper, users);
+
+        // Seed 100k progress rows
+        db.beginTransaction();
+        try {
+            SQLiteStatement insert = db.compileStatement(
+                    "INSERT INTO user_progress(user_id, topic_id, completed, score) VALUES (?, ?, 1, 50)");
+            for (int user = 1; user <= users; user++) {
+                for (int topic = 1; topic <= topicsPerUser; topic++) {
+                    insert.bindLong(1, user);
+                    insert.bindLong(2, topic);
+                    insert.executeInsert();
+                }
+            }
+            insert.close();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        final int iterations = 2000;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            // Half updates of existing rows, half new rows
+            int topic = (i % 2 == 0) ? (i % topicsPerUser) + 1 : topicsPerUser + i;
+            dbHelper.markTopicCompleted((i % users) + 1, topic, 90);
+        }
+        long writeNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            assertTrue(dbHelper.isTopicCompleted((i % users) + 1, (i % topicsPerUser) + 1));
+        }
+        long readNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            dbHelper.getCompletedTopicsCount((i % users) + 1);
+        }
+        long countNanos = System.nanoTime() - start;
+
+        Log.i(TAG, String.format("user_progress @100k rows: markTopicCompleted %.1f us/op, "
+                        + "isTopicCompleted %.1f us/op, getCompletedTopicsCount %.1f us/op",
+                writeNanos / 1000.0 / iterations,
+                readNanos / 1000.0 / iterations,
+                countNanos / 1000.0 / iterations));
+
+        // Updates must not have created duplicate rows
+        assertEquals(users * topicsPerUser + iterations / 2,
+                (int) DatabaseUtils.queryNumEntries(db, "user_progress"));
+        assertEquals(90, dbHelper.getAssessmentScore(1, 1));
+    }
+
+    @Test
+    public void concurrentReadersAgainstWriterPerProfile() throws Exception {
+        PragmaProfile[] profiles = {
+                PragmaProfile.PLATFORM_DEFAULT, PragmaProfile.DURABLE, PragmaProfile.BALANCED
+        };
+        for (PragmaProfile profile : profiles) {
+            String name = "benchmark_pragma_" + profile.getName();
+            context.deleteDatabase(name);
+            DatabaseHelper helper = new DatabaseHelper(context, name, profile);
+            try {
+                runReadWriteStress(helper, profile);
+            } finally {
+                helper.close();
+                context.deleteDatabase(name);
+            }
+        }
+    }
+
+    private void runReadWriteStress(DatabaseHelper helper, PragmaProfile profile) throws Exception {
+        final int readers = 4;
+        final int readsPerReader = 500;
+        final int writes = 500;
+        createUsers(helper, 50);
+
+        long[][] readLatencies = new long[readers][readsPerReader];
+        long[] writeLatencies = new long[writes];
+        CountDownLatch startGate = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        threads.add(new Thread(() -> {
+            try {
+                startGate.await();
+                for (int i = 0; i < writes; i++) {
+                    long start = System.nanoTime();
+                    helper.markTopicCompleted(i % 50 + 1, i % 5 + 1, i % 100);
+                    writeLatencies[i] = System.nanoTime() - start;
+                }
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            }
+        }));
+        for (int r = 0; r < readers; r++) {
+            final int reader = r;
+            threads.add(new Thread(() -> {
+                try {
+                    startGate.await();
+                    for (int i = 0; i < readsPerReader; i++) {
+                        long start = System.nanoTime();
+                        if (i % 2 == 0) {
+                            helper.getCompletedTopicsCount(i % 50 + 1);
+                        } else {
+                            helper.getAssessmentScore(i % 50 + 1, i / 2 % 5 + 1);
+                        }
+                        readLatencies[reader][i] = System.nanoTime() - start;
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }));
+        }
+
+        for (Thread thread : threads) thread.start();
+        startGate.countDown();
+        for (Thread thread : threads) thread.join();
+        if (failure.get() != null) {
+            throw new AssertionError("Stress thread failed", failure.get());
+        }
+
+        long[] allReads = new long[readers * readsPerReader];
+        for (int r = 0; r < readers; r++) {
+            System.arraycopy(readLatencies[r], 0, allReads, r * readsPerReader, readsPerReader);
+        }
+        Log.i(TAG, String.format("%s: reads p50=%.0f us p99=%.0f us, writes p50=%.0f us p99=%.0f us",
+                profile.getName(),
+                percentile(allReads, 50) / 1000.0, percentile(allReads, 99) / 1000.0,
+                percentile(writeLatencies, 50) / 1000.0, percentile(writeLatencies, 99) / 1000.0));
+    }
+
+    @Test
+    public void questionBankImport100k() throws Exception {
+        final int rows = 100_000;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(rows * 120);
+        Writer csv = new OutputStreamWriter(bytes, StandardCharsets.UTF_8);
+        csv.write("topic_id,question_text,option_a,option_b,option_c,option_d,correct_option\n");
+        for (int i = 0; i < rows; i++) {
+            csv.write((i % 5 + 1) + ",\"Question " + i + ", generated\",Alpha,Beta,Gamma,Delta," + (i % 4) + "\n");
+        }
+        // Two rejects: unknown topic and out-of-range answer
+        csv.write("99,Orphan,A,B,C,D,0\n");
+        csv.write("1,Bad answer,A,B,C,D,4\n");
+        csv.flush();
+
+        ContentDatabase contentDb = new ContentDatabase(context, CONTENT_DB_NAME, dbHelper);
+        int before = contentDb.getQuestionsForTopic(1).size();
+
+        try {
+            QuestionBankImporter.Result result = new QuestionBankImporter(contentDb)
+                    .importCsv(new ByteArrayInputStream(bytes.toByteArray()));
+            Log.i(TAG, "Question bank CSV import: " + result);
+
+            assertEquals(rows, result.getImported());
+            assertEquals(2, result.getRejected());
+            List<AssessmentQuestion> topic1 = contentDb.getQuestionsForTopic(1);
+            assertEquals(before + rows / 5, topic1.size());
+            assertEquals("Question 0, generated", topic1.get(before).getQuestionText());
+        } finally {
+            contentDb.close();
+        }
+    }
+
+    @Test
+    public void fullTextSearchAgainstLikeAt50kDocuments() throws Exception {
+        final int documents = 50_000;
+        final int vocabulary = 5_000;
+        final int queries = 200;
+        Random random = new Random(42);
+
+        // Sentences of 8-20 words drawn from a synthetic vocabulary
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(documents * 120);
+        Writer csv = new OutputStreamWriter(bytes, StandardCharsets.UTF_8);
+        csv.write("topic_id,question_text,option_a,option_b,option_c,option_d,correct_option\n");
+        for (int i = 0; i < documents; i++) {
+            StringBuilder text = new StringBuilder();
+            int words = 8 + random.nextInt(13);
+            for (int w = 0; w < words; w++) {
+                if (w > 0) text.append(' ');
+                text.append("term").append(random.nextInt(vocabulary));
+            }
+            csv.write((i % 5 + 1) + "," + text + ",A,B,C,D,0\n");
+        }
+        csv.flush();
+
+        ContentDatabase contentDb = new ContentDatabase(context, CONTENT_DB_NAME, dbHelper);
+        try {
+            new QuestionBankImporter(contentDb).importCsv(new ByteArrayInputStream(bytes.toByteArray()));
+
+            String[] terms = new String[queries];
+            for (int i = 0; i < queries; i++) {
+                terms[i] = "term" + random.nextInt(vocabulary);
+            }
+
+            long[] ftsLatencies = new long[queries];
+            int ftsHits = 0;
+            for (int i = 0; i < queries; i++) {
+                long start = System.nanoTime();
+                ftsHits += contentDb.search(terms[i], 50).size();
+                ftsLatencies[i] = System.nanoTime() - start;
+            }
+
+            long[] likeLatencies = new long[queries];
+            int likeHits = 0;
+            for (int i = 0; i < queries; i++) {
+                // Trailing space keeps term12 from matching term123, like the FTS token match
+                String pattern = "%" + terms[i] + " %";
+                long start = System.nanoTime();
+                likeHits += contentDb.read(db -> {
+                    Cursor cursor = db.rawQuery("SELECT id, question_text FROM assessment_questions " +
+                            "WHERE question_text || ' ' LIKE ? LIMIT 50", new String[] { pattern });
+                    try {
+                        return cursor.getCount();
+                    } finally {
+                        cursor.close();
+                    }
+                });
+                likeLatencies[i] = System.nanoTime() - start;
+            }
+
+            Log.i(TAG, String.format("search @%dk docs: FTS p50=%.0f us p99=%.0f us (%d hits), "
+                            + "LIKE p50=%.0f us p99=%.0f us (%d hits)",
+                    documents / 1000,
+                    percentile(ftsLatencies, 50) / 1000.0, percentile(ftsLatencies, 99) / 1000.0, ftsHits,
+                    percentile(likeLatencies, 50) / 1000.0, percentile(likeLatencies, 99) / 1000.0, likeHits));
+            assertTrue(ftsHits > 0);
+        } finally {
+            contentDb.close();
+        }
+    }
+
+    @Test
+    public void topicCatalogPagingAt10kTopics() {
+        final int extraTopics = 10_000;
+        final int pageSize = 30;
+        ContentDatabase contentDb = new ContentDatabase(context, CONTENT_DB_NAME, dbHelper);
+        try {
+            // Grow the installed catalog before any read handle is open
+            SQLiteDatabase db = SQLiteDatabase.openDatabase(contentDb.getInstalledFile().getPath(), null,
+                    SQLiteDatabase.OPEN_READWRITE);
+            db.beginTransaction();
+            try {
+                SQLiteStatement insert = db.compileStatement(
+                        "INSERT INTO topics(title, description, image_res_id) VALUES (?, ?, 0)");
+                for (int i = 0; i < extraTopics; i++) {
+                    insert.bindString(1, "Generated topic " + i);
+                    insert.bindString(2, "Description of generated topic number " + i);
+                    insert.executeInsert();
+                }
+                insert.close();
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                db.close();
+            }
+
+            long heapBefore = usedHeap();
+            long start = System.nanoTime();
+            List<Topic> all = contentDb.getAllTopics();
+            long allNanos = System.nanoTime() - start;
+            long allBytes = usedHeap() - heapBefore;
+            int total = all.size();
+            all = null;
+
+            heapBefore = usedHeap();
+            start = System.nanoTime();
+            List<Topic> firstPage = contentDb.getTopicsAfter(0, pageSize);
+            long firstPageNanos = System.nanoTime() - start;
+            long firstPageBytes = usedHeap() - heapBefore;
+
+            // Walk the whole catalog page by page; later pages must cost the same as the first
+            long lastId = firstPage.get(firstPage.size() - 1).getId();
+            int seen = firstPage.size();
+            long slowestPageNanos = 0;
+            while (true) {
+                start = System.nanoTime();
+                List<Topic> page = contentDb.getTopicsAfter(lastId, pageSize);
+                slowestPageNanos = Math.max(slowestPageNanos, System.nanoTime() - start);
+                if (page.isEmpty()) break;
+                seen += page.size();
+                lastId = page.get(page.size() - 1).getId();
+            }
+
+            Log.i(TAG, String.format("topics @%d: getAllTopics %.1f ms ~%d KB, first page %.2f ms ~%d KB, "
+                            + "slowest page %.2f ms",
+                    total, allNanos / 1e6, allBytes / 1024, firstPageNanos / 1e6, firstPageBytes / 1024,
+                    slowestPageNanos / 1e6));
+            assertEquals(pageSize, firstPage.size());
+            assertEquals(total, seen);
+        } finally {
+            contentDb.close();
+        }
+    }
+
+    @Test
+    public void topicProgressDashboardAt5kTopics() {
+        final int extraTopics = 5_000;
+        ContentDatabase contentDb = new ContentDatabase(context, CONTENT_DB_NAME, dbHelper);
+        try {
+            SQLiteDatabase content = SQLiteDatabase.openDatabase(contentDb.getInstalledFile().getPath(), null,
+                    SQLiteDatabase.OPEN_READWRITE);
+            content.beginTransaction();
+            try {
+                SQLiteStatement insert = content.compileStatement(
+                        "INSERT INTO topics(title, description, image_res_id) VALUES (?, '', 0)");
+                for (int i = 0; i < extraTopics; i++) {
+                    insert.bindString(1, "Generated topic " + i);
+                    insert.executeInsert();
+                }
+                insert.close();
+                content.setTransactionSuccessful();
+            } finally {
+                content.endTransaction();
+                content.close();
+            }
+
+            // One user who has finished every other topic
+            int userId = (int) dbHelper.createUserProfile("bench", "bench@example.com", "", "");
+            List<Topic> topics = contentDb.getAllTopics();
+            SQLiteDatabase db = dbHelper.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                for (int i = 0; i < topics.size(); i += 2) {
+                    dbHelper.markTopicCompleted(userId, topics.get(i).getId(), 70);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+
+            long start = System.nanoTime();
+            int[] completed = new int[1];
+            int rows = contentDb.streamTopicProgress("bench@example.com", 100, batch -> {
+                for (TopicProgress progress : batch) {
+                    if (progress.isCompleted()) completed[0]++;
+                }
+                return true;
+            });
+            long aggregateNanos = System.nanoTime() - start;
+
+            // What a per-topic dashboard would do: two lookups per topic
+            start = System.nanoTime();
+            int perTopicCompleted = 0;
+            for (Topic topic : topics) {
+                if (dbHelper.isTopicCompleted(userId, topic.getId())) perTopicCompleted++;
+                dbHelper.getAssessmentScore(userId, topic.getId());
+            }
+            long perTopicNanos = System.nanoTime() - start;
+
+            Log.i(TAG, String.format("progress dashboard @%d topics: one aggregate query %.1f ms, "
+                            + "per-topic lookups %.1f ms",
+                    rows, aggregateNanos / 1e6, perTopicNanos / 1e6));
+            assertEquals(topics.size(), rows);
+            assertEquals(perTopicCompleted, completed[0]);
+        } finally {
+            contentDb.close();
+        }
+    }
+
+    @Test
+    public void compressedStudyMaterialsAt300Bodies() throws Exception {
+        benchmarkCompressedBodies(300, 30_000);
+    }
+
+    @Test
+    public void compressedStudySectionsAtThreshold() throws Exception {
+        // Sections are what study_materials holds; the smallest ones still encoded
+        benchmarkCompressedBodies(300, StudyMaterialCompressor.MIN_ENCODED_BYTES);
+    }
+
+    private void benchmarkCompressedBodies(int bodies, int bodyChars) throws Exception {
+        final int rounds = 5;
+        final String plainName = CONTENT_DB_NAME + "_plain";
+        context.deleteDatabase(plainName);
+
+        // Lesson-like prose: sentences drawn from a fixed vocabulary
+        String[] words = new String[2000];
+        Random random = new Random(42);
+        for (int i = 0; i < words.length; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int c = 3 + random.nextInt(7); c > 0; c--) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            words[i] = word.toString();
+        }
+
+        ContentDatabase compressedDb = new ContentDatabase(context, CONTENT_DB_NAME, dbHelper);
+        ContentDatabase plainDb = new ContentDatabase(context, plainName, dbHelper);
+        try {
+            File compressedFile = compressedDb.getInstalledFile();
+            int[] topicIds = new int[bodies];
+            SQLiteDatabase db = SQLiteDatabase.openDatabase(compressedFile.getPath(), null,
+                    SQLiteDatabase.OPEN_READWRITE);
+            db.beginTransaction();
+            try {
+                SQLiteStatement topic = db.compileStatement(
+                        "INSERT INTO topics(title, description, image_res_id) VALUES (?, '', 0)");
+                SQLiteStatement material = db.compileStatement(
+                        "INSERT INTO study_materials(topic_id, content) VALUES (?, ?)");
+                StringBuilder body = new StringBuilder(bodyChars + 100);
+                for (int i = 0; i < bodies; i++) {
+                    topic.bindString(1, "Long lesson " + i);
+                    topicIds[i] = (int) topic.executeInsert();
+                    body.setLength(0);
+                    while (body.length() < bodyChars) {
+                        for (int w = 8 + random.nextInt(12); w > 0; w--) {
+                            body.append(words[random.nextInt(words.length)]).append(' ');
+                        }
+                        body.append(".\n");
+                    }
+                    material.bindLong(1, topicIds[i]);
+                    material.bindString(2, body.toString());
+                    material.executeInsert();
+                }
+                topic.close();
+                material.close();
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            db.execSQL("VACUUM");
+            db.close();
+
+            // Same content twice: one copy left plain, one compressed
+            File plainFile = context.getDatabasePath(plainName);
+            try (FileChannel in = new FileInputStream(compressedFile).getChannel();
+                 FileChannel out = new FileOutputStream(plainFile).getChannel()) {
+                in.transferTo(0, in.size(), out);
+            }
+            long plainSize = plainFile.length();
+            int encoded = StudyMaterialCompressor.compress(compressedFile, DeflateCodec.INSTANCE);
+            long compressedSize = compressedFile.length();
+
+            long[] plainNanos = new long[bodies * rounds];
+            long[] compressedNanos = new long[bodies * rounds];
+            long plainAllocated = 0;
+            long compressedAllocated = 0;
+            for (int round = 0; round < rounds; round++) {
+                // Measure database reads, not cache hits
+                plainDb.getCache().invalidate();
+                compressedDb.getCache().invalidate();
+                for (int i = 0; i < bodies; i++) {
+                    long allocated = allocatedBytes();
+                    long start = System.nanoTime();
+                    String plain = plainDb.getStudySections(topicIds[i], ContentDatabase.FIRST_SECTION, 1)
+                            .get(0).getText();
+                    plainNanos[round * bodies + i] = System.nanoTime() - start;
+                    plainAllocated += allocatedBytes() - allocated;
+
+                    allocated = allocatedBytes();
+                    start = System.nanoTime();
+                    String decoded = compressedDb.getStudySections(topicIds[i], ContentDatabase.FIRST_SECTION, 1)
+                            .get(0).getText();
+                    compressedNanos[round * bodies + i] = System.nanoTime() - start;
+                    compressedAllocated += allocatedBytes() - allocated;
+
+                    assertEquals(plain, decoded);
+                }
+            }
+
+            Log.i(TAG, String.format("study materials @%d x %d chars: file %d KB plain vs %d KB deflate; "
+                            + "read p50 %.0f/%.0f us, p95 %.0f/%.0f us, ~%d/%d KB allocated per read",
+                    bodies, bodyChars, plainSize / 1024, compressedSize / 1024,
+                    percentile(plainNanos, 50) / 1e3, percentile(compressedNanos, 50) / 1e3,
+                    percentile(plainNanos, 95) / 1e3, percentile(compressedNanos, 95) / 1e3,
+                    plainAllocated / (bodies * rounds) / 1024, compressedAllocated / (bodies * rounds) / 1024));
+            assertEquals(bodies, encoded);
+            assertTrue(compressedSize < plainSize);
+        } finally {
+            compressedDb.close();
+            plainDb.close();
+            context.deleteDatabase(plainName);
+        }
+    }
+
+    @Test
+    public void studySectionsFirstPaintAt100KbLesson() {
+        final int lessonChars = 100_000;
+        final int sectionChars = 2_000;
+        final int pageSize = 8;
+        final int visibleSections = 3;
+        final int rounds = 10;
+
+        // The same lesson stored as one body and as ordered sections
+        StringBuilder lesson = new StringBuilder(lessonChars + sectionChars);
+        List<String> sections = new ArrayList<>();
+        Random random = new Random(7);
+        while (lesson.length() < lessonChars) {
+            StringBuilder section = new StringBuilder(sectionChars + 100);
+            while (section.length() < sectionChars) {
+                section.append("Sentence ").append(random.nextInt(100_000))
+                        .append(" explains how activities, fragments and views work together. ");
+            }
+            sections.add(section.toString());
+            lesson.append(section).append("\n\n");
+        }
+
+        ContentDatabase contentDb = new ContentDatabase(context, CONTENT_DB_NAME, dbHelper);
+        try {
+            int wholeTopic;
+            int sectionedTopic;
+            SQLiteDatabase db = SQLiteDatabase.openDatabase(contentDb.getInstalledFile().getPath(), null,
+                    SQLiteDatabase.OPEN_READWRITE);
+            db.beginTransaction();
+            try {
+                SQLiteStatement topic = db.compileStatement(
+                        "INSERT INTO topics(title, description, image_res_id) VALUES (?, '', 0)");
+                SQLiteStatement material = db.compileStatement(
+                        "INSERT INTO study_materials(topic_id, position, content) VALUES (?, ?, ?)");
+                topic.bindString(1, "Whole lesson");
+                wholeTopic = (int) topic.executeInsert();
+                material.bindLong(1, wholeTopic);
+                material.bindLong(2, 0);
+                material.bindString(3, lesson.toString());
+                material.executeInsert();
+
+                topic.bindString(1, "Sectioned lesson");
+                sectionedTopic = (int) topic.executeInsert();
+                for (int i = 0; i < sections.size(); i++) {
+                    material.bindLong(1, sectionedTopic);
+                    material.bindLong(2, i);
+                    material.bindString(3, sections.get(i));
+                    material.executeInsert();
+                }
+                topic.close();
+                material.close();
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                db.close();
+            }
+
+            // What the first frame needs: the text read and measured for what is on screen
+            PrecomputedTextCompat.Params params = new PrecomputedTextCompat.Params.Builder(new TextPaint()).build();
+            long[] wholeNanos = new long[rounds];
+            long[] sectionedNanos = new long[rounds];
+            int pageLength = 0;
+            for (int round = 0; round < rounds; round++) {
+                contentDb.getCache().invalidate();
+
+                long start = System.nanoTime();
+                String body = contentDb.getStudySections(wholeTopic, ContentDatabase.FIRST_SECTION, pageSize)
+                        .get(0).getText();
+                PrecomputedTextCompat.create(body, params);
+                wholeNanos[round] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                List<StudySection> page = contentDb.getStudySections(sectionedTopic,
+                        ContentDatabase.FIRST_SECTION, pageSize);
+                for (int i = 0; i < visibleSections; i++) {
+                    PrecomputedTextCompat.create(page.get(i).getText(), params);
+                }
+                sectionedNanos[round] = System.nanoTime() - start;
+                pageLength = page.size();
+            }
+
+            Log.i(TAG, String.format("study material @%d KB: first paint work p50 %.1f ms whole body, "
+                            + "%.1f ms sectioned (%d sections)",
+                    lesson.length() / 1024, percentile(wholeNanos, 50) / 1e6,
+                    percentile(sectionedNanos, 50) / 1e6, sections.size()));
+            assertEquals(pageSize, pageLength);
+        } finally {
+            contentDb.close();
+        }
+    }
+
+    @Test
+    public void questionOptionsAgainstFixedColumnsAt20kQuestions() throws Exception {
+        final int questions = 20_000;
+        // True/false, three- and four-option items; all fit the old four columns
+        final int[] arities = { 2, 4, 3, 4 };
+        final String fixedName = "benchmark_fixed_questions";
+        context.deleteDatabase(fixedName);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(questions * 80);
+        Writer csv = new OutputStreamWriter(bytes, StandardCharsets.UTF_8);
+        csv.write("topic_id,question_text,options...,correct_option\n");
+        for (int i = 0; i < questions; i++) {
+            StringBuilder row = new StringBuilder("1,Question ").append(i);
+            int arity = arities[i % arities.length];
+            for (int o = 0; o < arity; o++) {
+                row.append(",Option ").append(o);
+            }
+            csv.write(row.append(',').append(i % arity).append('\n').toString());
+        }
+        csv.flush();
+
+        ContentDatabase contentDb = new ContentDatabase(context, CONTENT_DB_NAME, dbHelper);
+        SQLiteDatabase fixed = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath(fixedName), null);
+        try {
+            new QuestionBankImporter(contentDb).importCsv(new ByteArrayInputStream(bytes.toByteArray()));
+
+            // The same questions in the old layout, padded with NULLs
+            fixed.execSQL("CREATE TABLE assessment_questions(id INTEGER PRIMARY KEY,topic_id INTEGER," +
+                    "question_text TEXT,option_a TEXT,option_b TEXT,option_c TEXT,option_d TEXT,correct_option INTEGER)");
+            fixed.execSQL("CREATE INDEX idx_assessment_questions_topic ON assessment_questions(topic_id)");
+            fixed.beginTransaction();
+            try {
+                SQLiteStatement insert = fixed.compileStatement("INSERT INTO assessment_questions" +
+                        "(topic_id, question_text, option_a, option_b, option_c, option_d, correct_option)" +
+                        " VALUES (1, ?, ?, ?, ?, ?, ?)");
+                for (int i = 0; i < questions; i++) {
+                    insert.clearBindings();
+                    int arity = arities[i % arities.length];
+                    insert.bindString(1, "Question " + i);
+                    for (int o = 0; o < arity; o++) {
+                        insert.bindString(2 + o, "Option " + o);
+                    }
+                    insert.bindLong(6, i % arity);
+                    insert.executeInsert();
+                }
+                insert.close();
+                fixed.setTransactionSuccessful();
+            } finally {
+                fixed.endTransaction();
+            }
+
+            contentDb.getCache().invalidate();
+            long heapBefore = usedHeap();
+            long start = System.nanoTime();
+            List<AssessmentQuestion> normalized = contentDb.getQuestionsForTopic(1);
+            long normalizedNanos = System.nanoTime() - start;
+            long normalizedBytes = usedHeap() - heapBefore;
+            int normalizedCount = normalized.size();
+            normalized = null;
+
+            heapBefore = usedHeap();
+            start = System.nanoTime();
+            List<AssessmentQuestion> padded = new ArrayList<>();
+            Cursor cursor = fixed.rawQuery("SELECT id, question_text, option_a, option_b, option_c, option_d, " +
+                    "correct_option FROM assessment_questions WHERE topic_id = 1 ORDER BY id", null);
+            try {
+                while (cursor.moveToNext()) {
+                    String[] options = new String[4];
+                    for (int o = 0; o < 4; o++) {
+                        options[o] = cursor.getString(2 + o);
+                    }
+                    padded.add(new AssessmentQuestion(cursor.getInt(0), 1, cursor.getString(1),
+                            options, cursor.getInt(6)));
+                }
+            } finally {
+                cursor.close();
+            }
+            long fixedNanos = System.nanoTime() - start;
+            long fixedBytes = usedHeap() - heapBefore;
+
+            Log.i(TAG, String.format("questions @%d: option table %.1f ms ~%d KB retained, "
+                            + "fixed columns %.1f ms ~%d KB retained",
+                    padded.size(), normalizedNanos / 1e6, normalizedBytes / 1024,
+                    fixedNanos / 1e6, fixedBytes / 1024));
+            assertTrue(normalizedCount >= questions);
+            assertEquals(questions, padded.size());
+        } finally {
+            fixed.close();
+            contentDb.close();
+            context.deleteDatabase(fixedName);
+        }
+    }
+
+    @Test
+    public void progressWritesQueuedAgainstPerCall() {
+        final int users = 5;
+        final int topics = 40;
+        final int updates = 1_000;
+        Random random = new Random(17);
+        int[][] workload = new int[updates][];
+        for (int i = 0; i < updates; i++) {
+            // A learner revisiting a handful of topics: many updates hit the same row
+            workload[i] = new int[] { random.nextInt(users) + 1, random.nextInt(topics) + 1, random.nextInt(101) };
+        }
+        createUsers(dbHelper, users);
+
+        long[] directLatencies = new long[updates];
+        long start = System.nanoTime();
+        for (int i = 0; i < updates; i++) {
+            long t = System.nanoTime();
+            dbHelper.markTopicCompleted(workload[i][0], workload[i][1], workload[i][2]);
+            directLatencies[i] = System.nanoTime() - t;
+        }
+        long directNanos = System.nanoTime() - start;
+        List<int[]> expected = readProgress();
+
+        dbHelper.getWritableDatabase().delete("user_progress", null, null);
+
+        // Size-triggered flushes run inline so their cost shows up in the latencies
+        int[] flushes = new int[1];
+        ProgressWriteQueue queue = new ProgressWriteQueue(dbHelper, command -> {
+            flushes[0]++;
+            command.run();
+        });
+        long[] queuedLatencies = new long[updates];
+        start = System.nanoTime();
+        for (int i = 0; i < updates; i++) {
+            long t = System.nanoTime();
+            queue.markTopicCompleted(workload[i][0], workload[i][1], workload[i][2]);
+            queuedLatencies[i] = System.nanoTime() - t;
+        }
+        queue.flush();
+        flushes[0]++;
+        long queuedNanos = System.nanoTime() - start;
+
+        Log.i(TAG, String.format("%d progress updates: per-call %d commits %.1f ms (p50 %.1f us, p99 %.1f us), "
+                        + "queued %d commits %.1f ms (p50 %.1f us, p99 %.1f us)",
+                updates, updates, directNanos / 1e6,
+                percentile(directLatencies, 50) / 1e3, percentile(directLatencies, 99) / 1e3,
+                flushes[0], queuedNanos / 1e6,
+                percentile(queuedLatencies, 50) / 1e3, percentile(queuedLatencies, 99) / 1e3));
+
+        // Coalescing keeps the latest score per (user, topic), same as writing every call
+        List<int[]> actual = readProgress();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i));
+        }
+        assertEquals(0, queue.getPendingCount());
+    }
+
+    @Test
+    public void pooledPointQueriesAt1MCalls() {
+        final int users = 100;
+        final int topicsPerUser = 50;
+        final int iterations = 1_000_000;
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (int user = 1; user <= users; user++) {
+                dbHelper.createUserProfile("user" + user, "user" + user + "@example.com", "", "");
+                for (int topic = 1; topic <= topicsPerUser; topic += 2) {
+                    dbHelper.markTopicCompleted(user, topic, topic);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        // What the helper used to do: a fresh query per call, columns looked up by name
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            int user = i % users + 1;
+            int topic = i % topicsPerUser + 1;
+            switch (i % 4) {
+                case 0: {
+                    Cursor cursor = db.query("user_progress", new String[] { "COUNT(*)" },
+                            "user_id=? AND completed=?", new String[] { String.valueOf(user), String.valueOf(1) },
+                            null, null, null);
+                    if (cursor.moveToFirst()) checksum += cursor.getInt(0);
+                    cursor.close();
+                    break;
+                }
+                case 1:
+                case 2: {
+                    String column = i % 4 == 1 ? "completed" : "score";
+                    Cursor cursor = db.query("user_progress", new String[] { column },
+                            "user_id=? AND topic_id=?", new String[] { String.valueOf(user), String.valueOf(topic) },
+                            null, null, null);
+                    if (cursor.moveToFirst()) checksum += cursor.getInt(cursor.getColumnIndex(column));
+                    cursor.close();
+                    break;
+                }
+                default: {
+                    Cursor cursor = db.query("user_profiles", null, "email=?",
+                            new String[] { "user" + user + "@example.com" }, null, null, null);
+                    if (cursor.moveToFirst()) checksum += cursor.getInt(cursor.getColumnIndex("id"));
+                    cursor.close();
+                }
+            }
+        }
+        long queryNanos = System.nanoTime() - start;
+
+        long pooledChecksum = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            int user = i % users + 1;
+            int topic = i % topicsPerUser + 1;
+            switch (i % 4) {
+                case 0:
+                    pooledChecksum += dbHelper.getCompletedTopicsCount(user);
+                    break;
+                case 1:
+                    pooledChecksum += dbHelper.isTopicCompleted(user, topic) ? 1 : 0;
+                    break;
+                case 2:
+                    pooledChecksum += dbHelper.getAssessmentScore(user, topic);
+                    break;
+                default:
+                    pooledChecksum += dbHelper.getUserByEmail("user" + user + "@example.com").getId();
+            }
+        }
+        long pooledNanos = System.nanoTime() - start;
+
+        Log.i(TAG, String.format("%d point queries: db.query %.2f us/call, pooled statements %.2f us/call",
+                iterations, queryNanos / 1e3 / iterations, pooledNanos / 1e3 / iterations));
+        assertEquals(checksum, pooledChecksum);
+    }
+
+    @Test
+    public void cascadingAccountDeletionAt10kProgressRows() {
+        final int users = 10;
+        final int rowsPerUser = 10_000;
+        createUsers(dbHelper, users);
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            SQLiteStatement insert = db.compileStatement(
+                    "INSERT INTO user_progress(user_id, topic_id, completed, score) VALUES (?, ?, 1, 50)");
+            for (int user = 1; user <= users; user++) {
+                for (int topic = 1; topic <= rowsPerUser; topic++) {
+                    insert.bindLong(1, user);
+                    insert.bindLong(2, topic);
+                    insert.executeInsert();
+                }
+            }
+            insert.close();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        // Half the users through the cascade, half the way the helper used to do it
+        long[] cascadeNanos = new long[users / 2];
+        long[] manualNanos = new long[users / 2];
+        for (int i = 0; i < users / 2; i++) {
+            long start = System.nanoTime();
+            assertTrue(dbHelper.deleteUserByEmail("user" + (i + 1) + "@example.com"));
+            cascadeNanos[i] = System.nanoTime() - start;
+
+            String manualUser = String.valueOf(users / 2 + i + 1);
+            start = System.nanoTime();
+            db.beginTransaction();
+            try {
+                long id = DatabaseUtils.longForQuery(db, "SELECT id FROM user_profiles WHERE email = ?",
+                        new String[] { "user" + manualUser + "@example.com" });
+                db.delete("user_progress", "user_id=?", new String[] { String.valueOf(id) });
+                db.delete("user_profiles", "id=?", new String[] { String.valueOf(id) });
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            manualNanos[i] = System.nanoTime() - start;
+        }
+
+        Log.i(TAG, String.format("account deletion @%d progress rows: cascade p50 %.1f ms, "
+                        + "manual fan-out p50 %.1f ms",
+                rowsPerUser, percentile(cascadeNanos, 50) / 1e6, percentile(manualNanos, 50) / 1e6));
+        assertEquals(0, DatabaseUtils.queryNumEntries(db, "user_progress"));
+        assertEquals(0, DatabaseUtils.queryNumEntries(db, "user_profiles"));
+    }
+
+    @Test
+    public void completedTopicsBitsetAgainstStringSetAt10kTopics() {
+        final int topics = 10_000;
+        final String legacyName = "benchmark_string_set_prefs";
+        final String bitsetName = "benchmark_bitset_prefs";
+        SharedPreferences legacy = context.getSharedPreferences(legacyName, Context.MODE_PRIVATE);
+        SharedPreferences bitset = context.getSharedPreferences(bitsetName, Context.MODE_PRIVATE);
+        try {
+            // The old LearningProgressManager: copy, modify and store the string set per call
+            long start = System.nanoTime();
+            for (int id = 1; id <= topics; id++) {
+                Set<String> completed = new HashSet<>(legacy.getStringSet("completed", new HashSet<>()));
+                completed.add(String.valueOf(id));
+                legacy.edit().putStringSet("completed", completed).apply();
+            }
+            long legacyMarkNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            int legacyHits = 0;
+            for (int id = 1; id <= topics; id++) {
+                if (legacy.getStringSet("completed", new HashSet<>()).contains(String.valueOf(id))) legacyHits++;
+            }
+            int legacyCount = legacy.getStringSet("completed", new HashSet<>()).size();
+            long legacyReadNanos = System.nanoTime() - start;
+
+            CompletedTopicSet set = new CompletedTopicSet();
+            start = System.nanoTime();
+            for (int id = 1; id <= topics; id++) {
+                set.add(id);
+                bitset.edit().putString("completed", Base64.encodeToString(set.toByteArray(), Base64.NO_WRAP)).apply();
+            }
+            long bitsetMarkNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            int bitsetHits = 0;
+            for (int id = 1; id <= topics; id++) {
+                if (set.contains(id)) bitsetHits++;
+            }
+            int bitsetCount = set.size();
+            long bitsetReadNanos = System.nanoTime() - start;
+
+            int legacyBytes = 0;
+            for (String id : legacy.getStringSet("completed", new HashSet<>())) {
+                legacyBytes += id.length() + "<string></string>".length();
+            }
+            String blob = bitset.getString("completed", "");
+            Log.i(TAG, String.format("completed topics @%d: string set mark %.1f us/op, lookup %.2f us/op, "
+                            + "~%d bytes stored; bitset mark %.1f us/op, lookup %.3f us/op, %d bytes stored",
+                    topics, legacyMarkNanos / 1e3 / topics, legacyReadNanos / 1e3 / topics, legacyBytes,
+                    bitsetMarkNanos / 1e3 / topics, bitsetReadNanos / 1e3 / topics, blob.length()));
+
+            assertEquals(topics, legacyHits);
+            assertEquals(topics, legacyCount);
+            assertEquals(topics, bitsetHits);
+            assertEquals(topics, bitsetCount);
+            assertEquals(topics, CompletedTopicSet.fromByteArray(Base64.decode(blob, Base64.NO_WRAP)).size());
+        } finally {
+            context.deleteSharedPreferences(legacyName);
+            context.deleteSharedPreferences(bitsetName);
+        }
+    }
+
+    @Test
+    public void sessionStoreAgainstSharedPreferences() throws Exception {
+        final int files = 20;
+        final int swaps = 1000;
+        final int reads = 100_000;
+        String interests = "Android, databases, algorithms, user interface design";
+        File storeDir = new File(context.getCacheDir(), "benchmark_kv");
+        storeDir.mkdirs();
+        try {
+            // Same session in fresh files of each kind, so every open below is a cold read
+            for (int i = 0; i < files; i++) {
+                context.getSharedPreferences("benchmark_session_" + i, Context.MODE_PRIVATE).edit()
+                        .putBoolean("profile_created", true).putString("username", "user" + i)
+                        .putString("email", "user" + i + "@example.com").putString("interests", interests)
+                        .commit();
+                try (MappedKeyValueStore store = MappedKeyValueStore.open(new File(storeDir, i + ".kv"))) {
+                    store.edit().putBoolean("profile_created", true).putString("username", "user" + i)
+                            .putString("email", "user" + i + "@example.com").putString("interests", interests)
+                            .commit();
+                }
+            }
+
+            // Startup: first read of a file not yet loaded in this process
+            long start = System.nanoTime();
+            for (int i = 0; i < files; i++) {
+                assertEquals("user" + i + "@example.com", context.getSharedPreferences("benchmark_session_" + i,
+                        Context.MODE_PRIVATE).getString("email", ""));
+            }
+            long prefsOpenNanos = System.nanoTime() - start;
+            List<MappedKeyValueStore> stores = new ArrayList<>();
+            start = System.nanoTime();
+            for (int i = 0; i < files; i++) {
+                MappedKeyValueStore store = MappedKeyValueStore.open(new File(storeDir, i + ".kv"));
+                stores.add(store);
+                assertEquals("user" + i + "@example.com", store.getString("email", ""));
+            }
+            long storeOpenNanos = System.nanoTime() - start;
+
+            // Writes: a whole session swap per edit, as ProfileManager does. apply() is
+            // timed on the calling thread and then waited for; the store is done on return
+            SharedPreferences prefs = context.getSharedPreferences("benchmark_session_0", Context.MODE_PRIVATE);
+            MappedKeyValueStore store = stores.get(0);
+            start = System.nanoTime();
+            for (int i = 0; i < swaps; i++) {
+                prefs.edit().clear().putBoolean("profile_created", true).putString("username", "user" + i)
+                        .putString("email", "user" + i + "@example.com").putString("interests", interests)
+                        .apply();
+            }
+            long prefsApplyNanos = System.nanoTime() - start;
+            prefs.edit().commit();
+            long prefsWriteNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < swaps; i++) {
+                store.edit().clear().putBoolean("profile_created", true).putString("username", "user" + i)
+                        .putString("email", "user" + i + "@example.com").putString("interests", interests)
+                        .commit();
+            }
+            long storeWriteNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int prefsHits = 0;
+            for (int i = 0; i < reads; i++) {
+                if (prefs.getBoolean("profile_created", false)) prefsHits++;
+            }
+            long prefsReadNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            int storeHits = 0;
+            for (int i = 0; i < reads; i++) {
+                if (store.getBoolean("profile_created", false)) storeHits++;
+            }
+            long storeReadNanos = System.nanoTime() - start;
+
+            Log.i(TAG, String.format("session store: cold open prefs %.1f us, store %.1f us; swap prefs %.1f us/op "
+                            + "on caller (%.1f us/op until on disk), store %.1f us/op; read prefs %.3f us/op, store %.3f us/op; "
+                            + "store file %d bytes after %d swaps",
+                    prefsOpenNanos / 1e3 / files, storeOpenNanos / 1e3 / files,
+                    prefsApplyNanos / 1e3 / swaps, prefsWriteNanos / 1e3 / swaps, storeWriteNanos / 1e3 / swaps,
+                    prefsReadNanos / 1e3 / reads, storeReadNanos / 1e3 / reads,
+                    new File(storeDir, "0.kv").length(), swaps));
+
+            assertEquals(reads, prefsHits);
+            assertEquals(reads, storeHits);
+            assertEquals("user" + (swaps - 1) + "@example.com", prefs.getString("email", ""));
+            assertEquals("user" + (swaps - 1) + "@example.com", store.getString("email", ""));
+            for (MappedKeyValueStore open : stores) {
+                open.close();
+            }
+            try (MappedKeyValueStore reopened = MappedKeyValueStore.open(new File(storeDir, "0.kv"))) {
+                assertEquals("user" + (swaps - 1) + "@example.com", reopened.getString("email", ""));
+            }
+        } finally {
+            for (int i = 0; i < files; i++) {
+                context.deleteSharedPreferences("benchmark_session_" + i);
+                new File(storeDir, i + ".kv").delete();
+            }
+            storeDir.delete();
+        }
+    }
+
+    // Progress rows need their owner: user_progress.user_id references user_profiles
+    private static void createUsers(DatabaseHelper helper, int count) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            SQLiteStatement insert = db.compileStatement(
+                    "INSERT INTO user_profiles(id, username, email, password_hash, interests) VALUES (?, ?, ?, '', '')");
+            for (int user = 1; user <= count; user++) {
+                insert.bindLong(1, user);
+                insert.bindString(2, "user" + user);
+                insert.bindString(3, "user" + user + "@example.com");
+                insert.executeInsert();
+            }
+            insert.close();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private List<int[]> readProgress() {
+        List<int[]> rows = new ArrayList<>();
+        Cursor cursor = dbHelper.getReadableDatabase().rawQuery(
+                "SELECT user_id, topic_id, score FROM user_progress ORDER BY user_id, topic_id", null);
+        try {
+            while (cursor.moveToNext()) {
+                rows.add(new int[] { cursor.getInt(0), cursor.getInt(1), cursor.getInt(2) });
+            }
+        } finally {
+            cursor.close();
+        }
+        return rows;
+    }
+
+    // Bytes allocated by the runtime so far, garbage included
+    private static long allocatedBytes() {
+        return Long.parseLong(Debug.getRuntimeStat("art.gc.bytes-allocated"));
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        runtime.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long percentile(long[] values, int percentile) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
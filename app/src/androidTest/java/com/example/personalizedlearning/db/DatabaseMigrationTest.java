@@ -0,0 +1,154 @@
+package com.example.personalizedlearning.db;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Upgrades populated databases built with the original version 1 schema and
+ * checks that no user data is lost along the way.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseMigrationTest {
+    private static final String TAG = "DatabaseMigrationTest";
+    private static final String DB_NAME = "migration_test_db";
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void upgradeFromVersion1KeepsUsersAndProgress() {
+        SQLiteDatabase v1 = createVersion1Database();
+        v1.execSQL("INSERT INTO user_profiles(id, username, email, password_hash, interests) " +
+                "VALUES (1, 'alice', 'alice@example.com', 'hash-a', 'android')");
+        v1.execSQL("INSERT INTO user_profiles(id, username, email, password_hash, interests) " +
+                "VALUES (2, 'bob', 'bob@example.com', 'hash-b', '')");
+        v1.execSQL("INSERT INTO user_progress(user_id, topic_id, completed, score) VALUES (1, 1, 1, 80)");
+        v1.execSQL("INSERT INTO user_progress(user_id, topic_id, completed, score) VALUES (1, 2, 1, 40)");
+        v1.execSQL("INSERT INTO user_progress(user_id, topic_id, completed, score) VALUES (2, 1, 1, 100)");
+        // Duplicate left behind by the old select-then-write path; the newer row wins
+        v1.execSQL("INSERT INTO user_progress(user_id, topic_id, completed, score) VALUES (1, 2, 1, 60)");
+        // Progress of a user that no longer exists; dropped when the foreign key is added
+        v1.execSQL("INSERT INTO user_progress(user_id, topic_id, completed, score) VALUES (3, 1, 1, 70)");
+        v1.close();
+
+        DatabaseHelper dbHelper = new DatabaseHelper(context, DB_NAME);
+        try {
+            SQLiteDatabase db = dbHelper.getWritableDatabase();
+            assertEquals(DatabaseHelper.DATABASE_VERSION, db.getVersion());
+
+            UserProfile alice = dbHelper.getUserByEmail("alice@example.com");
+            assertNotNull(alice);
+            assertEquals("alice", alice.getUsername());
+            assertEquals("hash-a", alice.getPasswordHash());
+            assertEquals("android", alice.getInterests());
+            assertNotNull(dbHelper.getUserByEmail("bob@example.com"));
+
+            assertTrue(dbHelper.isTopicCompleted(1, 1));
+            assertEquals(80, dbHelper.getAssessmentScore(1, 1));
+            assertEquals(60, dbHelper.getAssessmentScore(1, 2));
+            assertEquals(100, dbHelper.getAssessmentScore(2, 1));
+            assertEquals(2, dbHelper.getCompletedTopicsCount(1));
+            assertEquals(0, dbHelper.getCompletedTopicsCount(3));
+
+            // Deleting a profile now cascades to its progress
+            assertTrue(dbHelper.deleteUserByEmail("bob@example.com"));
+            assertEquals(2, DatabaseUtils.queryNumEntries(db, "user_progress"));
+            assertEquals(0, dbHelper.getCompletedTopicsCount(2));
+
+            // Content moved to ContentDatabase; the copies in the user database are gone
+            assertEquals(0, DatabaseUtils.longForQuery(db,
+                    "SELECT COUNT(*) FROM sqlite_master WHERE name IN " +
+                    "('topics', 'study_materials', 'assessment_questions')", null));
+        } finally {
+            dbHelper.close();
+        }
+    }
+
+    @Test
+    public void upgradeLargeProgressTable() {
+        final int rows = 200_000;
+        SQLiteDatabase v1 = createVersion1Database();
+        v1.beginTransaction();
+        try {
+            // Every row belongs to an existing user so all of them survive the upgrade
+            for (int user = 1; user <= rows / 100; user++) {
+                v1.execSQL("INSERT INTO user_profiles(id, username, email) VALUES (" + user + ", " +
+                        "'user" + user + "', 'user" + user + "@example.com')");
+            }
+            SQLiteStatement insert = v1.compileStatement(
+                    "INSERT INTO user_progress(user_id, topic_id, completed, score) VALUES (?, ?, 1, ?)");
+            for (int i = 0; i < rows; i++) {
+                insert.bindLong(1, i / 100 + 1);
+                insert.bindLong(2, i % 100 + 1);
+                insert.bindLong(3, i % 101);
+                insert.executeInsert();
+            }
+            insert.close();
+            v1.setTransactionSuccessful();
+        } finally {
+            v1.endTransaction();
+        }
+        v1.close();
+
+        DatabaseHelper dbHelper = new DatabaseHelper(context, DB_NAME);
+        try {
+            long start = System.nanoTime();
+            SQLiteDatabase db = dbHelper.getWritableDatabase();
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            Log.i(TAG, "Upgrade of " + rows + " progress rows took " + elapsedMs + " ms");
+
+            assertEquals(rows, DatabaseUtils.queryNumEntries(db, "user_progress"));
+        } finally {
+            dbHelper.close();
+        }
+    }
+
+    /**
+     * Builds a database with the exact schema and seed data that shipped as version 1.
+     */
+    private SQLiteDatabase createVersion1Database() {
+        File file = context.getDatabasePath(DB_NAME);
+        file.getParentFile().mkdirs();
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(file, null);
+        db.execSQL("CREATE TABLE topics(id INTEGER PRIMARY KEY,title TEXT,description TEXT,image_res_id INTEGER)");
+        db.execSQL("CREATE TABLE study_materials(id INTEGER PRIMARY KEY,topic_id INTEGER,content TEXT)");
+        db.execSQL("CREATE TABLE assessment_questions(id INTEGER PRIMARY KEY,topic_id INTEGER," +
+                "question_text TEXT,option_a TEXT,option_b TEXT,option_c TEXT,option_d TEXT,correct_option INTEGER)");
+        db.execSQL("CREATE TABLE user_progress(id INTEGER PRIMARY KEY,user_id INTEGER,topic_id INTEGER," +
+                "completed INTEGER,score INTEGER)");
+        db.execSQL("CREATE TABLE user_profiles(id INTEGER PRIMARY KEY,username TEXT,email TEXT UNIQUE," +
+                "password_hash TEXT,interests TEXT)");
+        for (int i = 1; i <= 5; i++) {
+            db.execSQL("INSERT INTO topics(id, title, description, image_res_id) VALUES (" + i + ", " +
+                    "'Topic " + i + "', 'Description " + i + "', 0)");
+        }
+        db.setVersion(1);
+        return db;
+    }
+}
@@ -0,0 +1,225 @@
+-- Read-only content database shipped as an asset (see the buildContentDatabase
+-- task in app/build.gradle). user_version must equal ContentDatabase.CONTENT_VERSION;
+-- bump both whenever the content or its schema changes so installed copies are
+-- swapped for the new file.
+
+PRAGMA page_size = 4096;
+PRAGMA user_version = 5;
+
+BEGIN TRANSACTION;
+
+CREATE TABLE topics(id INTEGER PRIMARY KEY,title TEXT,description TEXT,image_res_id INTEGER);
+-- A topic's study material is a list of sections, one row each, shown in position
+-- order. study_materials.encoding: 0 means content is plain TEXT; any other value is
+-- the id of the ContentCodec whose BLOB output content holds (see StudyMaterialCompressor).
+CREATE TABLE study_materials(id INTEGER PRIMARY KEY,topic_id INTEGER,position INTEGER NOT NULL DEFAULT 0,content TEXT,encoding INTEGER NOT NULL DEFAULT 0);
+-- Each question has any number of answer options, in position order;
+-- correct_option is the position of the right one.
+CREATE TABLE assessment_questions(id INTEGER PRIMARY KEY,topic_id INTEGER,question_text TEXT,correct_option INTEGER);
+CREATE TABLE question_options(id INTEGER PRIMARY KEY,question_id INTEGER NOT NULL,position INTEGER NOT NULL,option_text TEXT NOT NULL);
+
+CREATE UNIQUE INDEX idx_study_materials_topic_position ON study_materials(topic_id, position);
+CREATE INDEX idx_assessment_questions_topic ON assessment_questions(topic_id);
+CREATE UNIQUE INDEX idx_question_options_question_position ON question_options(question_id, position);
+
+CREATE TRIGGER assessment_questions_options_ad AFTER DELETE ON assessment_questions BEGIN
+    DELETE FROM question_options WHERE question_id = old.id;
+END;
+
+-- Full-text index over study material and question text. kind and topic_id are
+-- stored but not tokenized. docid encodes the source row: 2 * id for study
+-- materials, 2 * id + 1 for questions. The triggers keep it in sync, including
+-- for rows added later by QuestionBankImporter. Only plain study material text is
+-- indexed by the triggers; encoding a body that is already indexed leaves its
+-- entry in place, so the index always holds the plain text.
+CREATE VIRTUAL TABLE content_search USING fts4(body, kind, topic_id, notindexed=kind, notindexed=topic_id, tokenize=porter);
+
+CREATE TRIGGER study_materials_search_ai AFTER INSERT ON study_materials WHEN new.encoding = 0 BEGIN
+    INSERT INTO content_search(docid, body, kind, topic_id) VALUES (new.id * 2, new.content, 'material', new.topic_id);
+END;
+CREATE TRIGGER study_materials_search_ad AFTER DELETE ON study_materials BEGIN
+    DELETE FROM content_search WHERE docid = old.id * 2;
+END;
+CREATE TRIGGER study_materials_search_au AFTER UPDATE ON study_materials WHEN new.encoding = 0 BEGIN
+    DELETE FROM content_search WHERE docid = old.id * 2;
+    INSERT INTO content_search(docid, body, kind, topic_id) VALUES (new.id * 2, new.content, 'material', new.topic_id);
+END;
+
+CREATE TRIGGER assessment_questions_search_ai AFTER INSERT ON assessment_questions BEGIN
+    INSERT INTO content_search(docid, body, kind, topic_id) VALUES (new.id * 2 + 1, new.question_text, 'question', new.topic_id);
+END;
+CREATE TRIGGER assessment_questions_search_ad AFTER DELETE ON assessment_questions BEGIN
+    DELETE FROM content_search WHERE docid = old.id * 2 + 1;
+END;
+CREATE TRIGGER assessment_questions_search_au AFTER UPDATE ON assessment_questions BEGIN
+    DELETE FROM content_search WHERE docid = old.id * 2 + 1;
+    INSERT INTO content_search(docid, body, kind, topic_id) VALUES (new.id * 2 + 1, new.question_text, 'question', new.topic_id);
+END;
+
+-- Topics
+INSERT INTO topics(id, title, description, image_res_id) VALUES (
+        1,
+        'Introduction to Mobile Development',
+        'Learn the basics of mobile app development',
+        0);
+INSERT INTO topics(id, title, description, image_res_id) VALUES (
+        2,
+        'UI Components',
+        'Explore various UI components in Android',
+        0);
+INSERT INTO topics(id, title, description, image_res_id) VALUES (
+        3,
+        'User Authentication',
+        'Implement secure user authentication',
+        0);
+INSERT INTO topics(id, title, description, image_res_id) VALUES (
+        4,
+        'Data Storage',
+        'Discover options for storing data in Android apps',
+        0);
+INSERT INTO topics(id, title, description, image_res_id) VALUES (
+        5,
+        'API Integration',
+        'Connect your app with external APIs',
+        0);
+
+-- Study materials
+INSERT INTO study_materials(topic_id, position, content) VALUES (
+        1, 0,
+        'Mobile development is the process of creating applications that run on mobile devices.');
+INSERT INTO study_materials(topic_id, position, content) VALUES (
+        1, 1,
+        'Key concepts in mobile development:
+• Native vs hybrid vs web apps
+• Platform-specific considerations
+• User interface design
+• Performance optimization
+• Device feature utilization');
+INSERT INTO study_materials(topic_id, position, content) VALUES (
+        1, 2,
+        'Android is an open-source mobile operating system developed by Google. Android applications are primarily written in Java or Kotlin and use XML for layouts.');
+INSERT INTO study_materials(topic_id, position, content) VALUES (
+        2, 0,
+        'Android UI Components are the building blocks for creating user interfaces.');
+INSERT INTO study_materials(topic_id, position, content) VALUES (
+        2, 1,
+        'Essential UI Components include:
+• TextView: Displays text to the user
+• EditText: Allows user input
+• Button: Triggers actions when clicked
+• ImageView: Displays images
+• RecyclerView: Efficiently displays scrollable lists
+• CardView: Material design container with shadow');
+INSERT INTO study_materials(topic_id, position, content) VALUES (
+        2, 2,
+        'Layouts are used to arrange UI components on the screen, including LinearLayout, RelativeLayout, ConstraintLayout, etc.');
+INSERT INTO study_materials(topic_id, position, content) VALUES (
+        3, 0,
+        'User authentication is the process of verifying a user''s identity.');
+INSERT INTO study_materials(topic_id, position, content) VALUES (
+        3, 1,
+        'Common authentication methods:
+• Username/password
+• OAuth 2.0
+• Firebase Authentication
+• Biometric authentication');
+INSERT INTO study_materials(topic_id, position, content) VALUES (
+        3, 2,
+        'Best practices for authentication:
+• Never store passwords in plain text
+• Use secure tokens for sessions
+• Implement proper error handling
+• Provide account recovery options');
+INSERT INTO study_materials(topic_id, position, content) VALUES (
+        4, 0,
+        'Android provides several options for storing data locally on the device.');
+INSERT INTO study_materials(topic_id, position, content) VALUES (
+        4, 1,
+        'Data storage options:
+• Shared Preferences: Store primitive data in key-value pairs
+• Internal Storage: Store private data on the device''s filesystem
+• External Storage: Store public data on shared external storage
+• SQLite Database: Store structured data in a local database
+• Room: A persistence library providing an abstraction layer over SQLite');
+INSERT INTO study_materials(topic_id, position, content) VALUES (
+        4, 2,
+        'The choice of storage method depends on the app''s specific requirements.');
+INSERT INTO study_materials(topic_id, position, content) VALUES (
+        5, 0,
+        'API Integration allows your app to communicate with external services.');
+INSERT INTO study_materials(topic_id, position, content) VALUES (
+        5, 1,
+        'Key concepts in API Integration:
+• RESTful APIs: HTTP-based communication with standard methods
+• JSON/XML parsing: Converting structured data to objects
+• Authentication: Securing API requests
+• Error handling: Managing network issues and API errors');
+INSERT INTO study_materials(topic_id, position, content) VALUES (
+        5, 2,
+        'Common libraries for API integration in Android:
+• Retrofit: Type-safe HTTP client
+• OkHttp: HTTP client for efficient requests
+• Volley: Google''s HTTP library
+• Gson/Jackson: JSON parsing libraries');
+
+-- Assessment questions and their options (correct_option is the 0-based position of the right answer)
+INSERT INTO assessment_questions(id, topic_id, question_text, correct_option) VALUES (
+        1, 1,
+        'What is the primary programming language for Android development?',
+        1);
+INSERT INTO question_options(question_id, position, option_text) VALUES
+        (1, 0, 'Swift'),
+        (1, 1, 'Java/Kotlin'),
+        (1, 2, 'C#'),
+        (1, 3, 'JavaScript');
+INSERT INTO assessment_questions(id, topic_id, question_text, correct_option) VALUES (
+        2, 1,
+        'Which of the following is NOT a mobile app development approach?',
+        3);
+INSERT INTO question_options(question_id, position, option_text) VALUES
+        (2, 0, 'Native'),
+        (2, 1, 'Hybrid'),
+        (2, 2, 'Web'),
+        (2, 3, 'Sequential');
+INSERT INTO assessment_questions(id, topic_id, question_text, correct_option) VALUES (
+        3, 1,
+        'What file format is used for Android layouts?',
+        1);
+INSERT INTO question_options(question_id, position, option_text) VALUES
+        (3, 0, 'JSON'),
+        (3, 1, 'XML'),
+        (3, 2, 'HTML'),
+        (3, 3, 'CSS');
+INSERT INTO assessment_questions(id, topic_id, question_text, correct_option) VALUES (
+        4, 2,
+        'Which component is used to display scrollable lists in Android?',
+        2);
+INSERT INTO question_options(question_id, position, option_text) VALUES
+        (4, 0, 'TextView'),
+        (4, 1, 'ScrollView'),
+        (4, 2, 'RecyclerView'),
+        (4, 3, 'ListView');
+INSERT INTO assessment_questions(id, topic_id, question_text, correct_option) VALUES (
+        5, 2,
+        'Which layout positions elements relative to each other?',
+        1);
+INSERT INTO question_options(question_id, position, option_text) VALUES
+        (5, 0, 'LinearLayout'),
+        (5, 1, 'RelativeLayout'),
+        (5, 2, 'ConstraintLayout'),
+        (5, 3, 'FrameLayout');
+INSERT INTO assessment_questions(id, topic_id, question_text, correct_option) VALUES (
+        6, 2,
+        'What is the purpose of a CardView?',
+        2);
+INSERT INTO question_options(question_id, position, option_text) VALUES
+        (6, 0, 'To display images'),
+        (6, 1, 'To show notification cards'),
+        (6, 2, 'To create material design containers with shadows'),
+        (6, 3, 'To render video content');
+
+COMMIT;
+
+INSERT INTO content_search(content_search) VALUES ('optimize');
+ANALYZE;
+VACUUM;
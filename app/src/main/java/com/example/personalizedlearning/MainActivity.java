@@ -3,6 +3,7 @@ package com.example.personalizedlearning;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.util.Log;
 import android.view.MenuItem;
 import android.view.View;
 import android.widget.Toast;
@@ -16,11 +17,18 @@ import androidx.navigation.NavDestination;
 import androidx.navigation.fragment.NavHostFragment;
 import androidx.navigation.ui.AppBarConfiguration;
 import androidx.navigation.ui.NavigationUI;
+import com.example.personalizedlearning.db.LearningRepository;
+import com.example.personalizedlearning.utils.LearningProgressManager;
 import com.example.personalizedlearning.utils.ProfileManager;
+import com.example.personalizedlearning.utils.Session;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.navigation.NavigationView;
 
 public class MainActivity extends AppCompatActivity implements NavigationView.OnNavigationItemSelectedListener {
+    private static final String TAG = "MainActivity";
+    // Longest onStop waits for queued progress to be committed
+    private static final long STOP_FLUSH_TIMEOUT_MS = 500;
+
     private NavController navController;
     private DrawerLayout drawerLayout;
     private AppBarConfiguration appBarConfiguration;
@@ -29,16 +37,52 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
     // Flag to prevent navigation loops
     private boolean isRedirecting = false;
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private ProfileManager profileManager;
+    // Latest session, kept current by the listener; null until the first delivery
+    private volatile Session session;
+    private final ProfileManager.SessionListener sessionListener = this::onSessionChanged;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        // Starts reading the session in the background while the layout inflates
+        profileManager = ProfileManager.getInstance(this);
+        profileManager.addSessionListener(sessionListener);
         setContentView(R.layout.activity_main);
 
         // Initialize UI components with proper error handling
         setupNavigation();
     }
     
+    private void onSessionChanged(Session changed) {
+        boolean firstDelivery = session == null;
+        session = changed;
+        // At start, have the signed-in user's progress in memory before a screen asks
+        // for it; sign-in and profile edits preload once their database write is queued
+        if (firstDelivery && changed.isSignedIn()) {
+            LearningProgressManager.getInstance(this).preload();
+        }
+        // A screen opened before the session was known was let through; check it now
+        if (firstDelivery && !changed.isSignedIn() && navController != null) {
+            NavDestination current = navController.getCurrentDestination();
+            if (current != null && isProtected(current.getId())) {
+                redirectToLogin();
+            }
+        }
+    }
+    
+    // False until the listener's first delivery; never waits for the session to load
+    private boolean isSignedIn() {
+        Session current = session;
+        return current != null && current.isSignedIn();
+    }
+    
+    private static boolean isProtected(int destinationId) {
+        return destinationId == R.id.navigation_learning
+                || destinationId == R.id.navigation_assessment
+                || destinationId == R.id.navigation_profile;
+    }
+    
     private void setupNavigation() {
         try {
             // Initialize UI components
@@ -119,20 +163,18 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
                 bottomNavigationView.setVisibility(isAuthScreen ? View.GONE : View.VISIBLE);
             }
             
-            // Check authentication for non-auth screens
-            if (!isAuthScreen) {
+            // Check authentication for non-auth screens; before the session is known
+            // the check waits for the listener's first delivery
+            if (!isAuthScreen && session != null) {
                 boolean isAuthenticated = false;
                 try {
-                    isAuthenticated = ProfileManager.getInstance(this).isProfileCreated();
+                    isAuthenticated = isSignedIn();
                 } catch (Exception e) {
                     e.printStackTrace();
                 }
                 
                 // If not logged in and trying to access protected area, redirect once
-                if (!isAuthenticated && !isRedirecting && 
-                    (id == R.id.navigation_learning || 
-                     id == R.id.navigation_assessment || 
-                     id == R.id.navigation_profile)) {
+                if (!isAuthenticated && !isRedirecting && isProtected(id)) {
                     
                     redirectToLogin();
                 }
@@ -173,7 +215,7 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
             boolean isAuthenticated = false;
             
             try {
-                isAuthenticated = ProfileManager.getInstance(this).isProfileCreated();
+                isAuthenticated = isSignedIn();
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -209,6 +251,30 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         }
     }
 
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // Start committing queued progress while the next screen comes up
+        LearningRepository.getInstance(this).flushProgressAsync();
+    }
+    
+    @Override
+    protected void onStop() {
+        // Queued progress must reach disk before the process can be killed. Usually
+        // the flush started in onPause has already finished and this returns at once;
+        // the wait is bounded so a slow disk cannot hold the main thread for long
+        if (!LearningRepository.getInstance(this).flushProgress(STOP_FLUSH_TIMEOUT_MS)) {
+            Log.w(TAG, "Progress not yet on disk after " + STOP_FLUSH_TIMEOUT_MS + " ms");
+        }
+        super.onStop();
+    }
+
+    @Override
+    protected void onDestroy() {
+        profileManager.removeSessionListener(sessionListener);
+        super.onDestroy();
+    }
+
     @Override
     public boolean onSupportNavigateUp() {
         try {
@@ -1,9 +1,12 @@
 package com.example.personalizedlearning.db;
 
 /**
- * Model class representing an assessment question in the database
+ * Model class representing an assessment question in the database, with any
+ * number of answer options
  */
 public class AssessmentQuestion {
+    private static final String[] NO_OPTIONS = new String[0];
+
     private int id;
     private int topicId;
     private String questionText;
@@ -11,7 +14,7 @@ public class AssessmentQuestion {
     private int correctAnswerIndex;
     
     public AssessmentQuestion() {
-        options = new String[4];
+        options = NO_OPTIONS;
     }
     
     public AssessmentQuestion(int id, int topicId, String questionText, String[] options, int correctAnswerIndex) {
@@ -0,0 +1,79 @@
+package com.example.personalizedlearning.db;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Copies a prebuilt SQLite file from the APK assets into the app's database directory.
+ *
+ * The copy is streamed through a fixed buffer into a temporary file which is
+ * synced and then renamed into place, so a crash mid-copy never leaves a
+ * truncated database behind.
+ */
+final class AssetDatabaseInstaller {
+    private static final String TAG = "AssetDatabaseInstaller";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private AssetDatabaseInstaller() {
+    }
+
+    /**
+     * Installs {@code assetPath} as {@code target} if the target does not exist yet.
+     *
+     * @return true if the file was copied, false if it already existed or the asset is missing
+     */
+    static boolean installIfMissing(Context context, String assetPath, File target) {
+        if (target.exists()) {
+            return false;
+        }
+        try {
+            long start = System.nanoTime();
+            long bytes = copy(context.getAssets(), assetPath, target);
+            Log.i(TAG, "Installed " + assetPath + " (" + bytes + " bytes) in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return true;
+        } catch (FileNotFoundException e) {
+            Log.w(TAG, "Prebuilt database " + assetPath + " not packaged");
+            return false;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to install " + assetPath, e);
+            return false;
+        }
+    }
+
+    static long copy(AssetManager assets, String assetPath, File target) throws IOException {
+        File parent = target.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+
+        File tmp = new File(target.getPath() + ".tmp");
+        long total = 0;
+        try (InputStream in = assets.open(assetPath, AssetManager.ACCESS_STREAMING);
+             FileOutputStream out = new FileOutputStream(tmp)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                total += read;
+            }
+            out.getFD().sync();
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+
+        if (!tmp.renameTo(target)) {
+            tmp.delete();
+            throw new IOException("Cannot rename " + tmp + " to " + target);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.personalizedlearning.db;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Size-bounded LRU cache in front of the {@link ContentDatabase} reads that screens
+ * repeat on every visit: topic pages, study sections and question lists.
+ *
+ * Entries are weighed by an estimate of their retained size in bytes. Content only
+ * changes through {@link ContentDatabase#replaceContent}, which calls
+ * {@link #invalidate}. The cache gives memory back on onTrimMemory: it halves while
+ * the app is running low and empties once the app is in the background.
+ */
+public class ContentCache implements ComponentCallbacks2 {
+    private static final String TAG = "ContentCache";
+
+    // Rough per-object overhead for headers and references
+    private static final int OBJECT_OVERHEAD = 16;
+
+    private final LruCache<String, Object> cache;
+    private final int maxSizeBytes;
+    private volatile int generation;
+
+    ContentCache(int maxSizeBytes) {
+        this.maxSizeBytes = maxSizeBytes;
+        this.cache = new LruCache<String, Object>(maxSizeBytes) {
+            @Override
+            protected int sizeOf(String key, Object value) {
+                return estimateSize(key, value);
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value for {@code key}, loading and caching it on a miss.
+     * Lists are handed out as fresh copies, so callers may modify what they get.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T get(String key, Supplier<T> loader) {
+        Object value = cache.get(key);
+        if (value == null) {
+            int loadedGeneration = generation;
+            value = loader.get();
+            if (value instanceof List) {
+                value = Collections.unmodifiableList(new ArrayList<>((List<?>) value));
+            }
+            // Skip the put if the content was replaced while this load was running
+            synchronized (this) {
+                if (value != null && loadedGeneration == generation) {
+                    cache.put(key, value);
+                }
+            }
+        }
+        if (value instanceof List) {
+            return (T) new ArrayList<>((List<?>) value);
+        }
+        return (T) value;
+    }
+
+    /** Drops every entry; called whenever the underlying content changes. */
+    public synchronized void invalidate() {
+        generation++;
+        cache.evictAll();
+    }
+
+    public Stats getStats() {
+        return new Stats(cache.hitCount(), cache.missCount(), cache.evictionCount(),
+                cache.size(), cache.maxSize());
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_BACKGROUND) {
+            // Backgrounded: everything can be reloaded from the mmapped file
+            cache.evictAll();
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            cache.trimToSize(maxSizeBytes / 2);
+        }
+        Log.d(TAG, "onTrimMemory(" + level + "), now " + cache.size() + " bytes");
+    }
+
+    @Override
+    public void onLowMemory() {
+        cache.evictAll();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+
+    private static int estimateSize(String key, Object value) {
+        int size = OBJECT_OVERHEAD + stringSize(key);
+        if (value instanceof String) {
+            size += stringSize((String) value);
+        } else if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                size += itemSize(item);
+            }
+        } else {
+            size += itemSize(value);
+        }
+        return size;
+    }
+
+    private static int itemSize(Object item) {
+        if (item instanceof Topic) {
+            Topic topic = (Topic) item;
+            return OBJECT_OVERHEAD + stringSize(topic.getTitle()) + stringSize(topic.getDescription());
+        }
+        if (item instanceof StudySection) {
+            return OBJECT_OVERHEAD + stringSize(((StudySection) item).getText());
+        }
+        if (item instanceof AssessmentQuestion) {
+            AssessmentQuestion question = (AssessmentQuestion) item;
+            int size = OBJECT_OVERHEAD * 2 + stringSize(question.getQuestionText());
+            for (String option : question.getOptions()) {
+                size += stringSize(option);
+            }
+            return size;
+        }
+        return OBJECT_OVERHEAD;
+    }
+
+    private static int stringSize(String value) {
+        return value == null ? 0 : OBJECT_OVERHEAD + 2 * value.length();
+    }
+
+    public static class Stats {
+        private final int hits;
+        private final int misses;
+        private final int evictions;
+        private final int sizeBytes;
+        private final int maxSizeBytes;
+
+        Stats(int hits, int misses, int evictions, int sizeBytes, int maxSizeBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.sizeBytes = sizeBytes;
+            this.maxSizeBytes = maxSizeBytes;
+        }
+
+        public int getHits() {
+            return hits;
+        }
+
+        public int getMisses() {
+            return misses;
+        }
+
+        public int getEvictions() {
+            return evictions;
+        }
+
+        public int getSizeBytes() {
+            return sizeBytes;
+        }
+
+        public int getMaxSizeBytes() {
+            return maxSizeBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "Cache: " + hits + " hits, " + misses + " misses, " + evictions + " evictions, "
+                    + sizeBytes / 1024 + "/" + maxSizeBytes / 1024 + " KB";
+        }
+    }
+}
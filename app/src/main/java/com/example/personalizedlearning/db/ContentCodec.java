@@ -0,0 +1,29 @@
+package com.example.personalizedlearning.db;
+
+/**
+ * Encoding for study material bodies stored as BLOBs in the content database.
+ *
+ * The codec's id is stored in study_materials.encoding next to each encoded body;
+ * {@link #PLAIN} (0) marks bodies kept as plain TEXT. To add a codec, give it an
+ * unused id and register it in {@link #forId}. Ids must never be reused, since
+ * installed content files keep them.
+ */
+interface ContentCodec {
+    int PLAIN = 0;
+
+    int getId();
+
+    byte[] encode(String text);
+
+    /** @throws IllegalStateException if {@code data} was not produced by {@link #encode} */
+    String decode(byte[] data);
+
+    static ContentCodec forId(int id) {
+        switch (id) {
+            case DeflateCodec.ID:
+                return DeflateCodec.INSTANCE;
+            default:
+                throw new IllegalStateException("Unknown study material encoding " + id);
+        }
+    }
+}
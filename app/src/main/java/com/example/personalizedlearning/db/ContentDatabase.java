@@ -0,0 +1,601 @@
+package com.example.personalizedlearning.db;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Read-only store for topics, study materials and assessment questions.
+ *
+ * The content lives in its own file, built from src/main/content/content.sql and
+ * shipped as an asset, separate from the mutable per-user database managed by
+ * {@link DatabaseHelper}. Content reads therefore never contend with progress
+ * writes. Connections are opened read-only with memory-mapped I/O, and updating
+ * the content means swapping in a whole new file with {@link #replaceContent}.
+ */
+public class ContentDatabase {
+    private static final String TAG = "ContentDatabase";
+
+    // Must match PRAGMA user_version in content.sql
+    static final int CONTENT_VERSION = 5;
+
+    private static final String DATABASE_NAME = "content_db";
+    private static final String CONTENT_ASSET = "databases/content.db";
+
+    // Each read-only handle is its own single-connection pool
+    private static final int READ_CONNECTIONS = 2;
+    private static final long MMAP_SIZE = 32L * 1024 * 1024;
+
+    // afterPosition for the first page of study sections
+    public static final int FIRST_SECTION = -1;
+
+    // Schema name of the user database on the cross-store connection
+    static final String USER_SCHEMA = "user";
+
+    // Table Names
+    public static final String TABLE_TOPICS = "topics";
+    public static final String TABLE_STUDY_MATERIALS = "study_materials";
+    public static final String TABLE_ASSESSMENT_QUESTIONS = "assessment_questions";
+    public static final String TABLE_QUESTION_OPTIONS = "question_options";
+
+    // Common column names
+    private static final String KEY_ID = "id";
+    private static final String KEY_TOPIC_ID = "topic_id";
+
+    // TOPICS Table - column names
+    private static final String KEY_TITLE = "title";
+    private static final String KEY_DESCRIPTION = "description";
+    private static final String KEY_IMAGE_RES_ID = "image_res_id";
+
+    // STUDY_MATERIALS Table - column names
+    private static final String KEY_POSITION = "position";
+    private static final String KEY_CONTENT = "content";
+    private static final String KEY_ENCODING = "encoding";
+
+
+    // Markers around matched terms in SearchResult snippets
+    public static final String SNIPPET_START = "\u0002";
+    public static final String SNIPPET_END = "\u0003";
+
+    // Matches are ranked in Java, so cap how many rows a very common term pulls back
+    private static final int MAX_SEARCH_CANDIDATES = 500;
+    private static final int SNIPPET_TOKENS = 12;
+
+    private static final String SEARCH_QUERY = "SELECT content_search.kind, content_search.topic_id, " +
+            "topics.title, " +
+            "snippet(content_search, '" + SNIPPET_START + "', '" + SNIPPET_END + "', '\u2026', 0, " +
+            SNIPPET_TOKENS + "), " +
+            "matchinfo(content_search, 'pcx') " +
+            "FROM content_search JOIN topics ON topics.id = content_search.topic_id " +
+            "WHERE content_search MATCH ? LIMIT " + MAX_SEARCH_CANDIDATES;
+
+    // A topic's questions and their options, through idx_assessment_questions_topic and
+    // idx_question_options_question_position; rows come out grouped by question
+    private static final String QUESTIONS_QUERY = "SELECT q.id, q.question_text, q.correct_option, " +
+            "o.option_text " +
+            "FROM " + TABLE_ASSESSMENT_QUESTIONS + " AS q JOIN " + TABLE_QUESTION_OPTIONS + " AS o ON o.question_id = q.id " +
+            "WHERE q.topic_id = ? ORDER BY q.id, o.position";
+
+    // Every topic with the user's progress, in one pass over topics and one index probe
+    // per topic into idx_user_progress_user_topic
+    private static final String TOPIC_PROGRESS_QUERY = "SELECT topics.id, topics.title, " +
+            "COALESCE(progress.completed, 0), COALESCE(progress.score, 0) " +
+            "FROM topics LEFT JOIN " + USER_SCHEMA + ".user_progress AS progress " +
+            "ON progress.topic_id = topics.id AND progress.user_id = " +
+            "(SELECT id FROM " + USER_SCHEMA + ".user_profiles WHERE email = ?) " +
+            "ORDER BY topics.id";
+
+    private static ContentDatabase instance;
+
+    private final Context context;
+    private final File databaseFile;
+    private final DatabaseHelper userDatabase;
+    private final ContentCache cache = new ContentCache(cacheSizeBytes());
+
+    // Readers hold the read lock for the duration of a query; a content swap takes
+    // the write lock so no handle is closed underneath a running query.
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final AtomicInteger nextReader = new AtomicInteger();
+    private SQLiteDatabase[] readers;
+    private SQLiteDatabase crossStoreConnection;
+    // Set once the packaged content has been installed or upgraded, under the write lock
+    private volatile boolean contentInstalled;
+
+    interface Query<T> {
+        T run(SQLiteDatabase db);
+    }
+
+    interface BatchSink<T> {
+        /** Receives the next batch; return false to stop reading. */
+        boolean accept(List<T> batch);
+    }
+
+    public static synchronized ContentDatabase getInstance(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            instance = new ContentDatabase(appContext, DATABASE_NAME, DatabaseHelper.getInstance(appContext));
+            appContext.registerComponentCallbacks(instance.cache);
+        }
+        return instance;
+    }
+
+    // Visible for tests and benchmarks that need a throwaway database file
+    ContentDatabase(Context context, String name, DatabaseHelper userDatabase) {
+        this.context = context;
+        this.databaseFile = context.getDatabasePath(name);
+        this.userDatabase = userDatabase;
+    }
+
+    /*
+     * Content reads
+     */
+
+    public List<Topic> getAllTopics() {
+        return read(db -> {
+            List<Topic> topics = new ArrayList<>();
+            Cursor cursor = db.query(TABLE_TOPICS,
+                    new String[] { KEY_ID, KEY_TITLE, KEY_DESCRIPTION, KEY_IMAGE_RES_ID },
+                    null, null, null, null, KEY_ID);
+            try {
+                while (cursor.moveToNext()) {
+                    topics.add(readTopic(cursor));
+                }
+            } finally {
+                cursor.close();
+            }
+            return topics;
+        });
+    }
+
+    /**
+     * One page of the topic catalog in id order, starting after {@code afterId}
+     * (0 for the first page). Seeks straight to the page through the primary key
+     * instead of skipping rows like OFFSET would, so every page costs the same.
+     */
+    public List<Topic> getTopicsAfter(long afterId, int limit) {
+        return cache.get("topics:" + afterId + ":" + limit, () -> read(db -> {
+            List<Topic> topics = new ArrayList<>(limit);
+            Cursor cursor = db.query(TABLE_TOPICS,
+                    new String[] { KEY_ID, KEY_TITLE, KEY_DESCRIPTION, KEY_IMAGE_RES_ID },
+                    KEY_ID + ">?",
+                    new String[] { String.valueOf(afterId) },
+                    null, null, KEY_ID, String.valueOf(limit));
+            try {
+                while (cursor.moveToNext()) {
+                    topics.add(readTopic(cursor));
+                }
+            } finally {
+                cursor.close();
+            }
+            return topics;
+        }));
+    }
+
+    public Topic getTopic(int id) {
+        return read(db -> {
+            Cursor cursor = db.query(TABLE_TOPICS,
+                    new String[] { KEY_ID, KEY_TITLE, KEY_DESCRIPTION, KEY_IMAGE_RES_ID },
+                    KEY_ID + "=?",
+                    new String[] { String.valueOf(id) },
+                    null, null, null, null);
+            try {
+                return cursor.moveToFirst() ? readTopic(cursor) : null;
+            } finally {
+                cursor.close();
+            }
+        });
+    }
+
+    /**
+     * Up to {@code limit} sections of a topic's study material in order, starting
+     * after position {@code afterPosition} ({@link #FIRST_SECTION} for the first
+     * page). An empty list on the first page means the topic has no material.
+     */
+    public List<StudySection> getStudySections(int topicId, int afterPosition, int limit) {
+        return cache.get("sections:" + topicId + ":" + afterPosition + ":" + limit, () -> read(db -> {
+            List<StudySection> sections = new ArrayList<>(limit);
+            Cursor cursor = db.query(TABLE_STUDY_MATERIALS,
+                    new String[] { KEY_POSITION, KEY_CONTENT, KEY_ENCODING },
+                    KEY_TOPIC_ID + "=? AND " + KEY_POSITION + ">?",
+                    new String[] { String.valueOf(topicId), String.valueOf(afterPosition) },
+                    null, null, KEY_POSITION, String.valueOf(limit));
+            try {
+                while (cursor.moveToNext()) {
+                    sections.add(new StudySection(cursor.getInt(0), readBody(cursor, 1, 2)));
+                }
+            } finally {
+                cursor.close();
+            }
+            return sections;
+        }));
+    }
+
+    // Large bodies are stored encoded; see StudyMaterialCompressor
+    private static String readBody(Cursor cursor, int contentColumn, int encodingColumn) {
+        int encoding = cursor.getInt(encodingColumn);
+        if (encoding == ContentCodec.PLAIN) {
+            return cursor.getString(contentColumn);
+        }
+        return ContentCodec.forId(encoding).decode(cursor.getBlob(contentColumn));
+    }
+
+    /**
+     * The questions of a topic with their options, read with a single join and
+     * grouped in one pass over the cursor, which is ordered by question then option.
+     */
+    public List<AssessmentQuestion> getQuestionsForTopic(int topicId) {
+        return cache.get("questions:" + topicId, () -> read(db -> {
+            List<AssessmentQuestion> questions = new ArrayList<>();
+            Cursor cursor = db.rawQuery(QUESTIONS_QUERY, new String[] { String.valueOf(topicId) });
+            try {
+                List<String> options = new ArrayList<>();
+                AssessmentQuestion question = null;
+                while (cursor.moveToNext()) {
+                    int id = cursor.getInt(0);
+                    if (question == null || question.getId() != id) {
+                        if (question != null) {
+                            question.setOptions(options.toArray(new String[0]));
+                            options.clear();
+                        }
+                        question = new AssessmentQuestion();
+                        question.setId(id);
+                        question.setTopicId(topicId);
+                        question.setQuestionText(cursor.getString(1));
+                        question.setCorrectAnswerIndex(cursor.getInt(2));
+                        questions.add(question);
+                    }
+                    options.add(cursor.getString(3));
+                }
+                if (question != null) {
+                    question.setOptions(options.toArray(new String[0]));
+                }
+            } finally {
+                cursor.close();
+            }
+            return questions;
+        }));
+    }
+
+    /**
+     * Streams every topic joined with the progress of the user with {@code email},
+     * handing rows to {@code sink} in batches as the cursor advances. Topics the user
+     * has not touched come back as not completed with a score of 0.
+     *
+     * @return the number of rows read
+     */
+    int streamTopicProgress(String email, int batchSize, BatchSink<TopicProgress> sink) {
+        return readAcrossStores(db -> {
+            int count = 0;
+            List<TopicProgress> batch = new ArrayList<>(batchSize);
+            Cursor cursor = db.rawQuery(TOPIC_PROGRESS_QUERY, new String[] { email });
+            try {
+                while (cursor.moveToNext()) {
+                    batch.add(new TopicProgress(cursor.getInt(0), cursor.getString(1),
+                            cursor.getInt(2) == 1, cursor.getInt(3)));
+                    count++;
+                    if (batch.size() == batchSize) {
+                        if (!sink.accept(batch)) {
+                            return count;
+                        }
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+            if (!batch.isEmpty()) {
+                sink.accept(batch);
+            }
+            return count;
+        });
+    }
+
+    /**
+     * Full-text search over study materials and question text, best matches first.
+     * Every word of {@code text} must match; the last word also matches as a prefix,
+     * so results update sensibly while the user is still typing.
+     */
+    public List<SearchResult> search(String text, int limit) {
+        String match = toMatchQuery(text);
+        if (match == null) {
+            return new ArrayList<>();
+        }
+        return read(db -> {
+            List<SearchResult> results = new ArrayList<>();
+            Cursor cursor = db.rawQuery(SEARCH_QUERY, new String[] { match });
+            try {
+                while (cursor.moveToNext()) {
+                    results.add(new SearchResult(cursor.getString(0), cursor.getInt(1),
+                            cursor.getString(2), cursor.getString(3), rank(cursor.getBlob(4))));
+                }
+            } finally {
+                cursor.close();
+            }
+            Collections.sort(results, (a, b) -> Double.compare(b.getScore(), a.getScore()));
+            return results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+        });
+    }
+
+    // Turns free text into an FTS query: bare words, ANDed, last one as a prefix
+    static String toMatchQuery(String text) {
+        if (text == null) {
+            return null;
+        }
+        StringBuilder query = new StringBuilder();
+        for (String word : text.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (query.length() > 0) {
+                query.append(' ');
+            }
+            query.append(word);
+        }
+        if (query.length() == 0) {
+            return null;
+        }
+        return query.append('*').toString();
+    }
+
+    /*
+     * Scores a row from matchinfo 'pcx': for every phrase, the share of that phrase's
+     * hits across the whole index that fall in this row. Rare terms weigh more than
+     * common ones, and rows that repeat a term rank above rows that mention it once.
+     */
+    private static double rank(byte[] matchinfo) {
+        ByteBuffer info = ByteBuffer.wrap(matchinfo).order(ByteOrder.nativeOrder());
+        int phrases = info.getInt(0);
+        int columns = info.getInt(4);
+        double score = 0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns; column++) {
+                int offset = 8 + 12 * (phrase * columns + column);
+                int hitsInRow = info.getInt(offset);
+                int hitsInAllRows = info.getInt(offset + 4);
+                if (hitsInRow > 0) {
+                    score += (double) hitsInRow / hitsInAllRows;
+                }
+            }
+        }
+        return score;
+    }
+
+    private static Topic readTopic(Cursor cursor) {
+        Topic topic = new Topic();
+        topic.setId(cursor.getInt(0));
+        topic.setTitle(cursor.getString(1));
+        topic.setDescription(cursor.getString(2));
+        topic.setImageResId(cursor.getInt(3));
+        return topic;
+    }
+
+    public ContentCache getCache() {
+        return cache;
+    }
+
+    // An eighth of the heap, at most 4 MB
+    private static int cacheSizeBytes() {
+        return (int) Math.min(Runtime.getRuntime().maxMemory() / 8, 4L * 1024 * 1024);
+    }
+
+    /*
+     * Connection management
+     */
+
+    <T> T read(Query<T> query) {
+        ensureInstalled();
+        swapLock.readLock().lock();
+        try {
+            SQLiteDatabase[] handles = openReaders();
+            int index = (nextReader.getAndIncrement() & Integer.MAX_VALUE) % handles.length;
+            return query.run(handles[index]);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs a query on a connection that has the user database attached as
+     * {@value #USER_SCHEMA}, for joins between content and user tables. The
+     * connection is query-only, so user data can only be changed through
+     * {@link DatabaseHelper}.
+     */
+    <T> T readAcrossStores(Query<T> query) {
+        ensureInstalled();
+        swapLock.readLock().lock();
+        try {
+            return query.run(openCrossStoreConnection());
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private synchronized SQLiteDatabase[] openReaders() {
+        if (readers == null) {
+            SQLiteDatabase[] handles = new SQLiteDatabase[READ_CONNECTIONS];
+            for (int i = 0; i < handles.length; i++) {
+                handles[i] = SQLiteDatabase.openDatabase(databaseFile.getPath(), null,
+                        SQLiteDatabase.OPEN_READONLY | SQLiteDatabase.NO_LOCALIZED_COLLATORS);
+                PragmaProfile.pragma(handles[i], "PRAGMA mmap_size = " + MMAP_SIZE);
+            }
+            readers = handles;
+        }
+        return readers;
+    }
+
+    private synchronized SQLiteDatabase openCrossStoreConnection() {
+        if (crossStoreConnection == null) {
+            // Make sure the user database exists and is fully migrated before attaching it
+            File userFile = new File(userDatabase.getWritableDatabase().getPath());
+
+            // Opened read-write only because reading an attached WAL database from a
+            // read-only connection is unreliable on older SQLite; query_only blocks
+            // writes to both schemas.
+            SQLiteDatabase db = SQLiteDatabase.openDatabase(databaseFile.getPath(), null,
+                    SQLiteDatabase.OPEN_READWRITE | SQLiteDatabase.NO_LOCALIZED_COLLATORS);
+            PragmaProfile.pragma(db, "PRAGMA query_only = 1");
+            db.execSQL("ATTACH DATABASE ? AS " + USER_SCHEMA, new Object[] { userFile.getPath() });
+            crossStoreConnection = db;
+        }
+        return crossStoreConnection;
+    }
+
+    // Installs the content before the first query. Taken before the read lock, which
+    // cannot be upgraded to the write lock.
+    private void ensureInstalled() {
+        if (contentInstalled) return;
+        boolean replaced;
+        swapLock.writeLock().lock();
+        try {
+            if (contentInstalled) return;
+            replaced = installContent();
+            contentInstalled = true;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        if (replaced) {
+            notifyContentChanged();
+        }
+    }
+
+    // Copies the packaged content on first launch, or when the app ships a newer version,
+    // and returns whether an installed copy was replaced. Called with the write lock
+    // held, like replaceContent, so no handle is open on the file being moved.
+    // Large study material bodies are compressed before the copy is first opened.
+    private boolean installContent() {
+        if (AssetDatabaseInstaller.installIfMissing(context, CONTENT_ASSET, databaseFile)) {
+            StudyMaterialCompressor.compress(databaseFile, DeflateCodec.INSTANCE);
+        }
+        if (!databaseFile.exists()) {
+            throw new IllegalStateException(CONTENT_ASSET + " is not packaged; see verifyContentDatabase");
+        }
+
+        int installedVersion = readVersion(databaseFile);
+        if (installedVersion < CONTENT_VERSION) {
+            Log.i(TAG, "Replacing content version " + installedVersion + " with " + CONTENT_VERSION);
+            File candidate = new File(databaseFile.getPath() + ".new");
+            try {
+                AssetDatabaseInstaller.copy(context.getAssets(), CONTENT_ASSET, candidate);
+                StudyMaterialCompressor.compress(candidate, DeflateCodec.INSTANCE);
+                closeConnections();
+                moveIntoPlace(candidate);
+                cache.invalidate();
+                return true;
+            } catch (IOException e) {
+                // Keep serving the old content rather than failing every read
+                Log.e(TAG, "Failed to update content", e);
+                candidate.delete();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Atomically replaces the content with {@code candidate}, a complete content
+     * database file on the same filesystem. The file is checked before anything is
+     * touched; queries already running finish against the old file and later ones
+     * see the new file.
+     */
+    public void replaceContent(File candidate) throws IOException {
+        int version = readVersion(candidate);
+        if (version < 1) {
+            throw new IOException(candidate + " is not a content database");
+        }
+        if (!passesQuickCheck(candidate)) {
+            throw new IOException(candidate + " failed integrity check");
+        }
+
+        swapLock.writeLock().lock();
+        try {
+            closeConnections();
+            moveIntoPlace(candidate);
+            cache.invalidate();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        notifyContentChanged();
+        Log.i(TAG, "Content replaced with version " + version);
+    }
+
+    // Releases the open handles; the next query reopens them
+    void close() {
+        swapLock.writeLock().lock();
+        try {
+            closeConnections();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    // The content file, installed from the assets first if needed
+    File getInstalledFile() {
+        ensureInstalled();
+        return databaseFile;
+    }
+
+    private synchronized void closeConnections() {
+        if (readers != null) {
+            for (SQLiteDatabase handle : readers) {
+                handle.close();
+            }
+            readers = null;
+        }
+        if (crossStoreConnection != null) {
+            crossStoreConnection.close();
+            crossStoreConnection = null;
+        }
+    }
+
+    // Content observers share the user database's tracker, see LearningRepository#observe
+    private void notifyContentChanged() {
+        userDatabase.getInvalidationTracker().notifyChanged(TABLE_TOPICS, TABLE_STUDY_MATERIALS,
+                TABLE_ASSESSMENT_QUESTIONS, TABLE_QUESTION_OPTIONS);
+    }
+
+    private void moveIntoPlace(File candidate) throws IOException {
+        // rename(2) replaces the target atomically on the same filesystem
+        if (!candidate.renameTo(databaseFile)) {
+            throw new IOException("Cannot move " + candidate + " to " + databaseFile);
+        }
+        new File(databaseFile.getPath() + "-journal").delete();
+    }
+
+    private static int readVersion(File file) {
+        if (!file.exists()) {
+            return 0;
+        }
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(file.getPath(), null,
+                SQLiteDatabase.OPEN_READONLY | SQLiteDatabase.NO_LOCALIZED_COLLATORS);
+        try {
+            return db.getVersion();
+        } finally {
+            db.close();
+        }
+    }
+
+    private static boolean passesQuickCheck(File file) {
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(file.getPath(), null,
+                SQLiteDatabase.OPEN_READONLY | SQLiteDatabase.NO_LOCALIZED_COLLATORS);
+        try {
+            Cursor cursor = db.rawQuery("PRAGMA quick_check", null);
+            try {
+                return cursor.moveToFirst() && "ok".equalsIgnoreCase(cursor.getString(0));
+            } finally {
+                cursor.close();
+            }
+        } finally {
+            db.close();
+        }
+    }
+}
@@ -3,46 +3,35 @@ package com.example.personalizedlearning.db;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteConstraintException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Build;
+import android.util.Log;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
-    // Database Version
-    private static final int DATABASE_VERSION = 1;
+    private static final String TAG = "DatabaseHelper";
+
+    // Database Version - bump together with a new step in DatabaseMigrations
+    static final int DATABASE_VERSION = 5;
 
     // Database Name
     private static final String DATABASE_NAME = "learning_db";
 
-    // Table Names
-    private static final String TABLE_TOPICS = "topics";
-    private static final String TABLE_STUDY_MATERIALS = "study_materials";
-    private static final String TABLE_ASSESSMENT_QUESTIONS = "assessment_questions";
-    private static final String TABLE_USER_PROGRESS = "user_progress";
-    private static final String TABLE_USER_PROFILES = "user_profiles";
+    // Table Names, also the names reported to InvalidationTracker observers
+    public static final String TABLE_USER_PROGRESS = "user_progress";
+    public static final String TABLE_USER_PROFILES = "user_profiles";
 
     // Common column names
     private static final String KEY_ID = "id";
     private static final String KEY_TOPIC_ID = "topic_id";
 
-    // TOPICS Table - column names
-    private static final String KEY_TITLE = "title";
-    private static final String KEY_DESCRIPTION = "description";
-    private static final String KEY_IMAGE_RES_ID = "image_res_id";
-
-    // STUDY_MATERIALS Table - column names
-    private static final String KEY_CONTENT = "content";
-
-    // ASSESSMENT_QUESTIONS Table - column names
-    private static final String KEY_QUESTION_TEXT = "question_text";
-    private static final String KEY_OPTION_A = "option_a";
-    private static final String KEY_OPTION_B = "option_b";
-    private static final String KEY_OPTION_C = "option_c";
-    private static final String KEY_OPTION_D = "option_d";
-    private static final String KEY_CORRECT_OPTION = "correct_option";
-
     // USER_PROGRESS Table - column names
     private static final String KEY_USER_ID = "user_id";
     private static final String KEY_COMPLETED = "completed";
@@ -55,37 +44,12 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String KEY_PASSWORD_HASH = "password_hash";
 
     // Create Table statements
-    private static final String CREATE_TABLE_TOPICS = "CREATE TABLE " + TABLE_TOPICS +
-            "(" +
-            KEY_ID + " INTEGER PRIMARY KEY," +
-            KEY_TITLE + " TEXT," +
-            KEY_DESCRIPTION + " TEXT," +
-            KEY_IMAGE_RES_ID + " INTEGER" +
-            ")";
-
-    private static final String CREATE_TABLE_STUDY_MATERIALS = "CREATE TABLE " + TABLE_STUDY_MATERIALS +
-            "(" +
-            KEY_ID + " INTEGER PRIMARY KEY," +
-            KEY_TOPIC_ID + " INTEGER," +
-            KEY_CONTENT + " TEXT" +
-            ")";
-
-    private static final String CREATE_TABLE_ASSESSMENT_QUESTIONS = "CREATE TABLE " + TABLE_ASSESSMENT_QUESTIONS +
-            "(" +
-            KEY_ID + " INTEGER PRIMARY KEY," +
-            KEY_TOPIC_ID + " INTEGER," +
-            KEY_QUESTION_TEXT + " TEXT," +
-            KEY_OPTION_A + " TEXT," +
-            KEY_OPTION_B + " TEXT," +
-            KEY_OPTION_C + " TEXT," +
-            KEY_OPTION_D + " TEXT," +
-            KEY_CORRECT_OPTION + " INTEGER" +
-            ")";
-
     private static final String CREATE_TABLE_USER_PROGRESS = "CREATE TABLE " + TABLE_USER_PROGRESS +
             "(" +
             KEY_ID + " INTEGER PRIMARY KEY," +
-            KEY_USER_ID + " INTEGER," +
+            // Deleting a profile deletes its progress; idx_user_progress_user_topic
+            // leads with user_id, so the cascade is an index range delete
+            KEY_USER_ID + " INTEGER REFERENCES " + TABLE_USER_PROFILES + "(" + KEY_ID + ") ON DELETE CASCADE," +
             KEY_TOPIC_ID + " INTEGER," +
             KEY_COMPLETED + " INTEGER," +
             KEY_SCORE + " INTEGER" +
@@ -100,7 +64,78 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             KEY_INTERESTS + " TEXT" +
             ")";
 
+    // One progress row per (user, topic); also serves the user_id lookups
+    private static final String INDEX_USER_PROGRESS_USER_TOPIC = "idx_user_progress_user_topic";
+    private static final String CREATE_INDEX_USER_PROGRESS_USER_TOPIC = "CREATE UNIQUE INDEX IF NOT EXISTS " +
+            INDEX_USER_PROGRESS_USER_TOPIC + " ON " + TABLE_USER_PROGRESS +
+            "(" + KEY_USER_ID + ", " + KEY_TOPIC_ID + ")";
+
+    // Single-statement upsert, needs SQLite 3.24 (Android 11+). A NULL score
+    // (ProgressUpdate.KEEP_SCORE) keeps the row's score, or stores 0 for a new row.
+    private static final String UPSERT_USER_PROGRESS = "INSERT INTO " + TABLE_USER_PROGRESS +
+            "(" + KEY_USER_ID + ", " + KEY_TOPIC_ID + ", " + KEY_COMPLETED + ", " + KEY_SCORE + ")" +
+            " VALUES (?1, ?2, 1, IFNULL(?3, 0))" +
+            " ON CONFLICT(" + KEY_USER_ID + ", " + KEY_TOPIC_ID + ") DO UPDATE SET " +
+            KEY_COMPLETED + " = excluded." + KEY_COMPLETED + ", " +
+            KEY_SCORE + " = IFNULL(?3, " + KEY_SCORE + ")";
+
+    private static final String UPDATE_USER_PROGRESS = "UPDATE " + TABLE_USER_PROGRESS +
+            " SET " + KEY_COMPLETED + " = 1, " + KEY_SCORE + " = IFNULL(?, " + KEY_SCORE + ")" +
+            " WHERE " + KEY_USER_ID + " = ? AND " + KEY_TOPIC_ID + " = ?";
+
+    private static final String INSERT_USER_PROGRESS = "INSERT INTO " + TABLE_USER_PROGRESS +
+            "(" + KEY_USER_ID + ", " + KEY_TOPIC_ID + ", " + KEY_COMPLETED + ", " + KEY_SCORE + ")" +
+            " VALUES (?, ?, 1, IFNULL(?, 0))";
+
+    // Read statements; also what QueryTracer explains when a call is slow
+    // Profile reads name their columns so rows are read by fixed ordinals
+    private static final String USER_PROFILE_COLUMNS = KEY_ID + ", " + KEY_USERNAME + ", " + KEY_EMAIL + ", " +
+            KEY_PASSWORD_HASH + ", " + KEY_INTERESTS;
+    private static final int COLUMN_ID = 0;
+    private static final int COLUMN_USERNAME = 1;
+    private static final int COLUMN_EMAIL = 2;
+    private static final int COLUMN_PASSWORD_HASH = 3;
+    private static final int COLUMN_INTERESTS = 4;
+
+    private static final String SELECT_USER_BY_EMAIL = "SELECT " + USER_PROFILE_COLUMNS +
+            " FROM " + TABLE_USER_PROFILES + " WHERE " + KEY_EMAIL + " = ?";
+
+    private static final String SELECT_ALL_USER_PROFILES = "SELECT " + USER_PROFILE_COLUMNS +
+            " FROM " + TABLE_USER_PROFILES;
+
+    // Scalar queries for StatementPool; the scalar subquery yields 0 when no row matches
+    private static final String SELECT_TOPIC_COMPLETED = "SELECT COALESCE((SELECT " + KEY_COMPLETED +
+            " FROM " + TABLE_USER_PROGRESS + " WHERE " + KEY_USER_ID + " = ? AND " + KEY_TOPIC_ID + " = ?), 0)";
+
+    private static final String SELECT_TOPIC_SCORE = "SELECT COALESCE((SELECT " + KEY_SCORE +
+            " FROM " + TABLE_USER_PROGRESS + " WHERE " + KEY_USER_ID + " = ? AND " + KEY_TOPIC_ID + " = ?), 0)";
+
+    private static final String SELECT_USER_PROGRESS = "SELECT " + KEY_TOPIC_ID + ", " + KEY_COMPLETED + ", " +
+            KEY_SCORE + " FROM " + TABLE_USER_PROGRESS + " WHERE " + KEY_USER_ID + " = ?";
+
+    private static final String COUNT_COMPLETED_TOPICS = "SELECT COUNT(*) FROM " + TABLE_USER_PROGRESS +
+            " WHERE " + KEY_USER_ID + " = ? AND " + KEY_COMPLETED + " = 1";
+
+    // Only explained, never run: the update goes through ContentValues
+    private static final String UPDATE_USER_PROFILE = "UPDATE " + TABLE_USER_PROFILES +
+            " SET " + KEY_USERNAME + " = ?, " + KEY_EMAIL + " = ?, " + KEY_INTERESTS + " = ?" +
+            " WHERE " + KEY_EMAIL + " = ?";
+
+    // Only explained, never run: the update goes through ContentValues
+    private static final String UPDATE_PASSWORD_HASH = "UPDATE " + TABLE_USER_PROFILES +
+            " SET " + KEY_PASSWORD_HASH + " = ? WHERE " + KEY_EMAIL + " = ?";
+
+    // user_progress rows go with it through ON DELETE CASCADE
+    private static final String DELETE_USER_BY_EMAIL = "DELETE FROM " + TABLE_USER_PROFILES +
+            " WHERE " + KEY_EMAIL + " = ?";
+
     private static DatabaseHelper instance;
+    private static PragmaProfile defaultPragmaProfile = PragmaProfile.BALANCED;
+
+    private final PragmaProfile pragmaProfile;
+    private final InvalidationTracker invalidationTracker = new InvalidationTracker();
+    private final QueryTracer queryTracer = new QueryTracer(this::getReadableDatabase);
+    private final StatementPool statementPool = new StatementPool(this::getReadableDatabase);
 
     public static synchronized DatabaseHelper getInstance(Context context) {
         if (instance == null) {
@@ -109,600 +144,396 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         return instance;
     }
 
+    /**
+     * Selects the connection settings used by the shared instance. Has no effect once
+     * {@link #getInstance} has been called.
+     */
+    public static synchronized void setPragmaProfile(PragmaProfile profile) {
+        defaultPragmaProfile = profile;
+    }
+
     private DatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this(context, DATABASE_NAME, defaultPragmaProfile);
     }
 
-    @Override
-    public void onCreate(SQLiteDatabase db) {
-        // Creating required tables
-        db.execSQL(CREATE_TABLE_TOPICS);
-        db.execSQL(CREATE_TABLE_STUDY_MATERIALS);
-        db.execSQL(CREATE_TABLE_ASSESSMENT_QUESTIONS);
-        db.execSQL(CREATE_TABLE_USER_PROGRESS);
-        db.execSQL(CREATE_TABLE_USER_PROFILES);
-        
-        // Insert initial data
-        insertInitialData(db);
+    // Visible for tests and benchmarks that need a throwaway database file
+    DatabaseHelper(Context context, String name) {
+        this(context, name, PragmaProfile.BALANCED);
+    }
+
+    DatabaseHelper(Context context, String name, PragmaProfile pragmaProfile) {
+        super(context, name, null, DATABASE_VERSION);
+        this.pragmaProfile = pragmaProfile;
     }
 
     @Override
-    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        // Drop older tables if existed
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_TOPICS);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_STUDY_MATERIALS);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_ASSESSMENT_QUESTIONS);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_USER_PROGRESS);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_USER_PROFILES);
-
-        // Create tables again
-        onCreate(db);
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        // Off by default in SQLite; needed for the cascade from user_profiles
+        db.setForeignKeyConstraintsEnabled(true);
+        // WAL lets profile and progress reads proceed while a progress write commits
+        pragmaProfile.apply(db);
     }
 
-    // Helper method to insert initial data into the database
-    private void insertInitialData(SQLiteDatabase db) {
-        // Insert initial topics
-        insertInitialTopics(db);
-        
-        // Insert study materials
-        insertInitialStudyMaterials(db);
-        
-        // Insert assessment questions
-        insertInitialAssessmentQuestions(db);
+    /**
+     * Reports the tables changed by this helper's write methods, after each write
+     * has committed. A write made inside a transaction the caller opened is reported
+     * when the method returns, before that transaction commits.
+     */
+    public InvalidationTracker getInvalidationTracker() {
+        return invalidationTracker;
     }
-    
-    // Insert initial topics
-    private void insertInitialTopics(SQLiteDatabase db) {
-        // Sample topics from the HomeFragment
-        ContentValues values = new ContentValues();
-        
-        // Topic 1
-        values.put(KEY_ID, 1);
-        values.put(KEY_TITLE, "Introduction to Mobile Development");
-        values.put(KEY_DESCRIPTION, "Learn the basics of mobile app development");
-        values.put(KEY_IMAGE_RES_ID, 0); // Will be replaced with actual resource ID
-        db.insert(TABLE_TOPICS, null, values);
-        
-        // Topic 2
-        values.clear();
-        values.put(KEY_ID, 2);
-        values.put(KEY_TITLE, "UI Components");
-        values.put(KEY_DESCRIPTION, "Explore various UI components in Android");
-        values.put(KEY_IMAGE_RES_ID, 0);
-        db.insert(TABLE_TOPICS, null, values);
-        
-        // Topic 3
-        values.clear();
-        values.put(KEY_ID, 3);
-        values.put(KEY_TITLE, "User Authentication");
-        values.put(KEY_DESCRIPTION, "Implement secure user authentication");
-        values.put(KEY_IMAGE_RES_ID, 0);
-        db.insert(TABLE_TOPICS, null, values);
-        
-        // Topic 4
-        values.clear();
-        values.put(KEY_ID, 4);
-        values.put(KEY_TITLE, "Data Storage");
-        values.put(KEY_DESCRIPTION, "Discover options for storing data in Android apps");
-        values.put(KEY_IMAGE_RES_ID, 0);
-        db.insert(TABLE_TOPICS, null, values);
-        
-        // Topic 5
-        values.clear();
-        values.put(KEY_ID, 5);
-        values.put(KEY_TITLE, "API Integration");
-        values.put(KEY_DESCRIPTION, "Connect your app with external APIs");
-        values.put(KEY_IMAGE_RES_ID, 0);
-        db.insert(TABLE_TOPICS, null, values);
+
+    /** Latency, row and thread statistics for the public methods of this helper. */
+    public QueryTracer getQueryTracer() {
+        return queryTracer;
     }
-    
-    // Insert initial study materials
-    private void insertInitialStudyMaterials(SQLiteDatabase db) {
-        ContentValues values = new ContentValues();
-        
-        // Study material for Topic 1
-        values.put(KEY_TOPIC_ID, 1);
-        values.put(KEY_CONTENT, "Mobile development is the process of creating applications that run on mobile devices.\n\n" +
-                "Key concepts in mobile development:\n" +
-                "• Native vs hybrid vs web apps\n" +
-                "• Platform-specific considerations\n" +
-                "• User interface design\n" +
-                "• Performance optimization\n" +
-                "• Device feature utilization\n\n" +
-                "Android is an open-source mobile operating system developed by Google. " +
-                "Android applications are primarily written in Java or Kotlin and use XML for layouts.");
-        db.insert(TABLE_STUDY_MATERIALS, null, values);
-        
-        // Study material for Topic 2
-        values.clear();
-        values.put(KEY_TOPIC_ID, 2);
-        values.put(KEY_CONTENT, "Android UI Components are the building blocks for creating user interfaces.\n\n" +
-                "Essential UI Components include:\n" +
-                "• TextView: Displays text to the user\n" +
-                "• EditText: Allows user input\n" +
-                "• Button: Triggers actions when clicked\n" +
-                "• ImageView: Displays images\n" +
-                "• RecyclerView: Efficiently displays scrollable lists\n" +
-                "• CardView: Material design container with shadow\n\n" +
-                "Layouts are used to arrange UI components on the screen, including LinearLayout, RelativeLayout, ConstraintLayout, etc.");
-        db.insert(TABLE_STUDY_MATERIALS, null, values);
-        
-        // Study material for Topic 3
-        values.clear();
-        values.put(KEY_TOPIC_ID, 3);
-        values.put(KEY_CONTENT, "User authentication is the process of verifying a user's identity.\n\n" +
-                "Common authentication methods:\n" +
-                "• Username/password\n" +
-                "• OAuth 2.0\n" +
-                "• Firebase Authentication\n" +
-                "• Biometric authentication\n\n" +
-                "Best practices for authentication:\n" +
-                "• Never store passwords in plain text\n" +
-                "• Use secure tokens for sessions\n" +
-                "• Implement proper error handling\n" +
-                "• Provide account recovery options");
-        db.insert(TABLE_STUDY_MATERIALS, null, values);
-        
-        // Study material for Topic 4
-        values.clear();
-        values.put(KEY_TOPIC_ID, 4);
-        values.put(KEY_CONTENT, "Android provides several options for storing data locally on the device.\n\n" +
-                "Data storage options:\n" +
-                "• Shared Preferences: Store primitive data in key-value pairs\n" +
-                "• Internal Storage: Store private data on the device's filesystem\n" +
-                "• External Storage: Store public data on shared external storage\n" +
-                "• SQLite Database: Store structured data in a local database\n" +
-                "• Room: A persistence library providing an abstraction layer over SQLite\n\n" +
-                "The choice of storage method depends on the app's specific requirements.");
-        db.insert(TABLE_STUDY_MATERIALS, null, values);
-        
-        // Study material for Topic 5
-        values.clear();
-        values.put(KEY_TOPIC_ID, 5);
-        values.put(KEY_CONTENT, "API Integration allows your app to communicate with external services.\n\n" +
-                "Key concepts in API Integration:\n" +
-                "• RESTful APIs: HTTP-based communication with standard methods\n" +
-                "• JSON/XML parsing: Converting structured data to objects\n" +
-                "• Authentication: Securing API requests\n" +
-                "• Error handling: Managing network issues and API errors\n\n" +
-                "Common libraries for API integration in Android:\n" +
-                "• Retrofit: Type-safe HTTP client\n" +
-                "• OkHttp: HTTP client for efficient requests\n" +
-                "• Volley: Google's HTTP library\n" +
-                "• Gson/Jackson: JSON parsing libraries");
-        db.insert(TABLE_STUDY_MATERIALS, null, values);
+
+    @Override
+    public synchronized void close() {
+        // Pooled statements belong to the connection being closed
+        statementPool.clear();
+        super.close();
     }
-    
-    // Insert initial assessment questions
-    private void insertInitialAssessmentQuestions(SQLiteDatabase db) {
-        ContentValues values = new ContentValues();
-        
-        // Questions for Topic 1
-        values.put(KEY_TOPIC_ID, 1);
-        values.put(KEY_QUESTION_TEXT, "What is the primary programming language for Android development?");
-        values.put(KEY_OPTION_A, "Swift");
-        values.put(KEY_OPTION_B, "Java/Kotlin");
-        values.put(KEY_OPTION_C, "C#");
-        values.put(KEY_OPTION_D, "JavaScript");
-        values.put(KEY_CORRECT_OPTION, 1); // B is correct (index 1)
-        db.insert(TABLE_ASSESSMENT_QUESTIONS, null, values);
-        
-        values.clear();
-        values.put(KEY_TOPIC_ID, 1);
-        values.put(KEY_QUESTION_TEXT, "Which of the following is NOT a mobile app development approach?");
-        values.put(KEY_OPTION_A, "Native");
-        values.put(KEY_OPTION_B, "Hybrid");
-        values.put(KEY_OPTION_C, "Web");
-        values.put(KEY_OPTION_D, "Sequential");
-        values.put(KEY_CORRECT_OPTION, 3); // D is correct (index 3)
-        db.insert(TABLE_ASSESSMENT_QUESTIONS, null, values);
-        
-        values.clear();
-        values.put(KEY_TOPIC_ID, 1);
-        values.put(KEY_QUESTION_TEXT, "What file format is used for Android layouts?");
-        values.put(KEY_OPTION_A, "JSON");
-        values.put(KEY_OPTION_B, "XML");
-        values.put(KEY_OPTION_C, "HTML");
-        values.put(KEY_OPTION_D, "CSS");
-        values.put(KEY_CORRECT_OPTION, 1); // B is correct (index 1)
-        db.insert(TABLE_ASSESSMENT_QUESTIONS, null, values);
-        
-        // Questions for Topic 2
-        values.clear();
-        values.put(KEY_TOPIC_ID, 2);
-        values.put(KEY_QUESTION_TEXT, "Which component is used to display scrollable lists in Android?");
-        values.put(KEY_OPTION_A, "TextView");
-        values.put(KEY_OPTION_B, "ScrollView");
-        values.put(KEY_OPTION_C, "RecyclerView");
-        values.put(KEY_OPTION_D, "ListView");
-        values.put(KEY_CORRECT_OPTION, 2); // C is correct (index 2)
-        db.insert(TABLE_ASSESSMENT_QUESTIONS, null, values);
-        
-        values.clear();
-        values.put(KEY_TOPIC_ID, 2);
-        values.put(KEY_QUESTION_TEXT, "Which layout positions elements relative to each other?");
-        values.put(KEY_OPTION_A, "LinearLayout");
-        values.put(KEY_OPTION_B, "RelativeLayout");
-        values.put(KEY_OPTION_C, "ConstraintLayout");
-        values.put(KEY_OPTION_D, "FrameLayout");
-        values.put(KEY_CORRECT_OPTION, 1); // B is correct (index 1)
-        db.insert(TABLE_ASSESSMENT_QUESTIONS, null, values);
-        
-        values.clear();
-        values.put(KEY_TOPIC_ID, 2);
-        values.put(KEY_QUESTION_TEXT, "What is the purpose of a CardView?");
-        values.put(KEY_OPTION_A, "To display images");
-        values.put(KEY_OPTION_B, "To show notification cards");
-        values.put(KEY_OPTION_C, "To create material design containers with shadows");
-        values.put(KEY_OPTION_D, "To render video content");
-        values.put(KEY_CORRECT_OPTION, 2); // C is correct (index 2)
-        db.insert(TABLE_ASSESSMENT_QUESTIONS, null, values);
-        
-        // Add more questions for other topics as needed
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        // Creating required tables; topics and questions live in ContentDatabase
+        db.execSQL(CREATE_TABLE_USER_PROGRESS);
+        db.execSQL(CREATE_TABLE_USER_PROFILES);
+        db.execSQL(CREATE_INDEX_USER_PROGRESS_USER_TOPIC);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Incremental, data-preserving steps; see DatabaseMigrations
+        DatabaseMigrations.migrate(db, oldVersion, newVersion);
     }
 
     /*
      * CRUD Operations for each table
      */
     
-    // Topics operations
-    public List<Topic> getAllTopics() {
-        List<Topic> topics = new ArrayList<>();
-        String selectQuery = "SELECT * FROM " + TABLE_TOPICS;
-        
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(selectQuery, null);
-        
-        if (cursor.moveToFirst()) {
-            do {
-                Topic topic = new Topic();
-                topic.setId(cursor.getInt(cursor.getColumnIndex(KEY_ID)));
-                topic.setTitle(cursor.getString(cursor.getColumnIndex(KEY_TITLE)));
-                topic.setDescription(cursor.getString(cursor.getColumnIndex(KEY_DESCRIPTION)));
-                topic.setImageResId(cursor.getInt(cursor.getColumnIndex(KEY_IMAGE_RES_ID)));
-                
-                topics.add(topic);
-            } while (cursor.moveToNext());
+    // User Profile operations
+    public long createUserProfile(String username, String email, String passwordHash, String interests) {
+        long start = System.nanoTime();
+        long id = -1;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            
+            ContentValues values = new ContentValues();
+            values.put(KEY_USERNAME, username);
+            values.put(KEY_EMAIL, email);
+            values.put(KEY_PASSWORD_HASH, passwordHash);
+            values.put(KEY_INTERESTS, interests);
+            
+            id = db.insert(TABLE_USER_PROFILES, null, values);
+            if (id != -1) {
+                invalidationTracker.notifyChanged(TABLE_USER_PROFILES);
+            }
+            return id;
+        } finally {
+            queryTracer.record("createUserProfile", start, id == -1 ? 0 : 1, null);
         }
-        
-        cursor.close();
-        return topics;
     }
     
-    public Topic getTopic(int id) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        
-        Cursor cursor = db.query(TABLE_TOPICS, 
-                new String[] { KEY_ID, KEY_TITLE, KEY_DESCRIPTION, KEY_IMAGE_RES_ID },
-                KEY_ID + "=?",
-                new String[] { String.valueOf(id) },
-                null, null, null, null);
-        
-        if (cursor != null && cursor.moveToFirst()) {
-            Topic topic = new Topic();
-            topic.setId(cursor.getInt(cursor.getColumnIndex(KEY_ID)));
-            topic.setTitle(cursor.getString(cursor.getColumnIndex(KEY_TITLE)));
-            topic.setDescription(cursor.getString(cursor.getColumnIndex(KEY_DESCRIPTION)));
-            topic.setImageResId(cursor.getInt(cursor.getColumnIndex(KEY_IMAGE_RES_ID)));
+    public int updateUserProfile(String oldEmail, String username, String email, String interests) {
+        long start = System.nanoTime();
+        int rows = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
             
-            cursor.close();
-            return topic;
-        }
-        
-        if (cursor != null) {
-            cursor.close();
+            ContentValues values = new ContentValues();
+            values.put(KEY_USERNAME, username);
+            values.put(KEY_EMAIL, email);
+            values.put(KEY_INTERESTS, interests);
+            
+            rows = db.update(TABLE_USER_PROFILES, values, KEY_EMAIL + "=?", new String[] { oldEmail });
+            if (rows > 0) {
+                invalidationTracker.notifyChanged(TABLE_USER_PROFILES);
+            }
+            return rows;
+        } finally {
+            queryTracer.record("updateUserProfile", start, rows, UPDATE_USER_PROFILE);
         }
-        
-        return null;
     }
     
-    // Study Materials operations
-    public String getStudyContent(int topicId) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        
-        Cursor cursor = db.query(TABLE_STUDY_MATERIALS,
-                new String[] { KEY_CONTENT },
-                KEY_TOPIC_ID + "=?",
-                new String[] { String.valueOf(topicId) },
-                null, null, null, null);
-        
-        if (cursor != null && cursor.moveToFirst()) {
-            String content = cursor.getString(cursor.getColumnIndex(KEY_CONTENT));
-            cursor.close();
-            return content;
-        }
-        
-        if (cursor != null) {
-            cursor.close();
+    /** Replaces the stored password hash, e.g. when a legacy hash is upgraded at sign-in. */
+    public int updatePasswordHash(String email, String passwordHash) {
+        long start = System.nanoTime();
+        int rows = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            
+            ContentValues values = new ContentValues();
+            values.put(KEY_PASSWORD_HASH, passwordHash);
+            
+            rows = db.update(TABLE_USER_PROFILES, values, KEY_EMAIL + "=?", new String[] { email });
+            if (rows > 0) {
+                invalidationTracker.notifyChanged(TABLE_USER_PROFILES);
+            }
+            return rows;
+        } finally {
+            queryTracer.record("updatePasswordHash", start, rows, UPDATE_PASSWORD_HASH);
         }
-        
-        return "No content available for this topic.";
     }
     
-    // Assessment Questions operations
-    public List<AssessmentQuestion> getQuestionsForTopic(int topicId) {
-        List<AssessmentQuestion> questions = new ArrayList<>();
-        
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_ASSESSMENT_QUESTIONS,
-                null,
-                KEY_TOPIC_ID + "=?",
-                new String[] { String.valueOf(topicId) },
-                null, null, null);
-        
-        if (cursor.moveToFirst()) {
-            do {
-                AssessmentQuestion question = new AssessmentQuestion();
-                question.setId(cursor.getInt(cursor.getColumnIndex(KEY_ID)));
-                question.setTopicId(cursor.getInt(cursor.getColumnIndex(KEY_TOPIC_ID)));
-                question.setQuestionText(cursor.getString(cursor.getColumnIndex(KEY_QUESTION_TEXT)));
-                
-                String[] options = new String[4];
-                options[0] = cursor.getString(cursor.getColumnIndex(KEY_OPTION_A));
-                options[1] = cursor.getString(cursor.getColumnIndex(KEY_OPTION_B));
-                options[2] = cursor.getString(cursor.getColumnIndex(KEY_OPTION_C));
-                options[3] = cursor.getString(cursor.getColumnIndex(KEY_OPTION_D));
-                question.setOptions(options);
-                
-                question.setCorrectAnswerIndex(cursor.getInt(cursor.getColumnIndex(KEY_CORRECT_OPTION)));
-                
-                questions.add(question);
-            } while (cursor.moveToNext());
+    public UserProfile getUserByEmail(String email) {
+        long start = System.nanoTime();
+        UserProfile userProfile = null;
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            
+            Cursor cursor = db.rawQuery(SELECT_USER_BY_EMAIL, new String[] { email });
+            try {
+                if (cursor.moveToFirst()) {
+                    userProfile = readUserProfile(cursor);
+                }
+            } finally {
+                cursor.close();
+            }
+            
+            return userProfile;
+        } finally {
+            queryTracer.record("getUserByEmail", start, userProfile == null ? 0 : 1, SELECT_USER_BY_EMAIL);
         }
-        
-        cursor.close();
-        return questions;
     }
     
-    // User Profile operations
-    public long createUserProfile(String username, String email, String passwordHash, String interests) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        
-        ContentValues values = new ContentValues();
-        values.put(KEY_USERNAME, username);
-        values.put(KEY_EMAIL, email);
-        values.put(KEY_PASSWORD_HASH, passwordHash);
-        values.put(KEY_INTERESTS, interests);
-        
-        return db.insert(TABLE_USER_PROFILES, null, values);
+    // User Progress operations
+    public void markTopicCompleted(int userId, int topicId, int score) {
+        long start = System.nanoTime();
+        boolean upsert = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            
+            if (upsert) {
+                // Single index probe: insert, or update the existing (user, topic) row
+                SQLiteStatement statement = db.compileStatement(UPSERT_USER_PROGRESS);
+                try {
+                    statement.bindLong(1, userId);
+                    statement.bindLong(2, topicId);
+                    statement.bindLong(3, score);
+                    statement.executeInsert();
+                } finally {
+                    statement.close();
+                }
+                invalidationTracker.notifyChanged(TABLE_USER_PROGRESS);
+                return;
+            }
+            
+            // Older SQLite has no UPSERT; update through the unique index and
+            // only insert when no row matched
+            db.beginTransaction();
+            try {
+                SQLiteStatement update = db.compileStatement(UPDATE_USER_PROGRESS);
+                try {
+                    update.bindLong(1, score);
+                    update.bindLong(2, userId);
+                    update.bindLong(3, topicId);
+                    if (update.executeUpdateDelete() == 0) {
+                        SQLiteStatement insert = db.compileStatement(INSERT_USER_PROGRESS);
+                        try {
+                            insert.bindLong(1, userId);
+                            insert.bindLong(2, topicId);
+                            insert.bindLong(3, score);
+                            insert.executeInsert();
+                        } finally {
+                            insert.close();
+                        }
+                    }
+                } finally {
+                    update.close();
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            invalidationTracker.notifyChanged(TABLE_USER_PROGRESS);
+        } finally {
+            queryTracer.record("markTopicCompleted", start, 1,
+                    upsert ? UPSERT_USER_PROGRESS : UPDATE_USER_PROGRESS);
+        }
     }
     
-    public UserProfile getUserByEmail(String email) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        
-        Cursor cursor = db.query(TABLE_USER_PROFILES,
-                null,
-                KEY_EMAIL + "=?",
-                new String[] { email },
-                null, null, null);
-        
-        if (cursor != null && cursor.moveToFirst()) {
-            UserProfile userProfile = new UserProfile();
-            userProfile.setId(cursor.getInt(cursor.getColumnIndex(KEY_ID)));
-            userProfile.setUsername(cursor.getString(cursor.getColumnIndex(KEY_USERNAME)));
-            userProfile.setEmail(cursor.getString(cursor.getColumnIndex(KEY_EMAIL)));
-            userProfile.setPasswordHash(cursor.getString(cursor.getColumnIndex(KEY_PASSWORD_HASH)));
-            userProfile.setInterests(cursor.getString(cursor.getColumnIndex(KEY_INTERESTS)));
+    /**
+     * Writes a batch of progress updates in one transaction, so the batch costs a
+     * single commit instead of one per row. Used by {@link ProgressWriteQueue}.
+     */
+    public void markTopicsCompleted(Collection<ProgressUpdate> updates) {
+        if (updates.isEmpty()) return;
+        long start = System.nanoTime();
+        boolean upsert = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
             
-            cursor.close();
-            return userProfile;
-        }
-        
-        if (cursor != null) {
-            cursor.close();
+            // Statements are compiled once for the whole batch
+            SQLiteStatement write = db.compileStatement(upsert ? UPSERT_USER_PROGRESS : UPDATE_USER_PROGRESS);
+            SQLiteStatement insert = upsert ? null : db.compileStatement(INSERT_USER_PROGRESS);
+            db.beginTransaction();
+            try {
+                for (ProgressUpdate update : updates) {
+                    try {
+                        if (upsert) {
+                            write.bindLong(1, update.getUserId());
+                            write.bindLong(2, update.getTopicId());
+                            bindScore(write, 3, update);
+                            write.executeInsert();
+                            continue;
+                        }
+                        bindScore(write, 1, update);
+                        write.bindLong(2, update.getUserId());
+                        write.bindLong(3, update.getTopicId());
+                        if (write.executeUpdateDelete() == 0) {
+                            insert.bindLong(1, update.getUserId());
+                            insert.bindLong(2, update.getTopicId());
+                            bindScore(insert, 3, update);
+                            insert.executeInsert();
+                        }
+                    } catch (SQLiteConstraintException e) {
+                        // The user was deleted after this update was queued; one stale
+                        // row must not hold back the rest of the batch
+                        Log.w(TAG, "Dropping progress of missing user " + update.getUserId());
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                write.close();
+                if (insert != null) {
+                    insert.close();
+                }
+            }
+            invalidationTracker.notifyChanged(TABLE_USER_PROGRESS);
+        } finally {
+            queryTracer.record("markTopicsCompleted", start, updates.size(),
+                    upsert ? UPSERT_USER_PROGRESS : UPDATE_USER_PROGRESS);
         }
-        
-        return null;
     }
     
-    // User Progress operations
-    public void markTopicCompleted(int userId, int topicId, int score) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        
-        ContentValues values = new ContentValues();
-        values.put(KEY_USER_ID, userId);
-        values.put(KEY_TOPIC_ID, topicId);
-        values.put(KEY_COMPLETED, 1); // 1 for completed
-        values.put(KEY_SCORE, score);
-        
-        // Check if record exists
-        Cursor cursor = db.query(TABLE_USER_PROGRESS,
-                null,
-                KEY_USER_ID + "=? AND " + KEY_TOPIC_ID + "=?",
-                new String[] { String.valueOf(userId), String.valueOf(topicId) },
-                null, null, null);
-        
-        if (cursor != null && cursor.moveToFirst()) {
-            // Update existing record
-            db.update(TABLE_USER_PROGRESS, values,
-                    KEY_USER_ID + "=? AND " + KEY_TOPIC_ID + "=?",
-                    new String[] { String.valueOf(userId), String.valueOf(topicId) });
+    private static void bindScore(SQLiteStatement statement, int index, ProgressUpdate update) {
+        if (update.keepsScore()) {
+            statement.bindNull(index);
         } else {
-            // Insert new record
-            db.insert(TABLE_USER_PROGRESS, null, values);
-        }
-        
-        if (cursor != null) {
-            cursor.close();
+            statement.bindLong(index, update.getScore());
         }
     }
     
     public boolean isTopicCompleted(int userId, int topicId) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        
-        Cursor cursor = db.query(TABLE_USER_PROGRESS,
-                new String[] { KEY_COMPLETED },
-                KEY_USER_ID + "=? AND " + KEY_TOPIC_ID + "=?",
-                new String[] { String.valueOf(userId), String.valueOf(topicId) },
-                null, null, null);
-        
-        boolean completed = false;
-        if (cursor != null && cursor.moveToFirst()) {
-            completed = cursor.getInt(cursor.getColumnIndex(KEY_COMPLETED)) == 1;
-        }
-        
-        if (cursor != null) {
-            cursor.close();
+        long start = System.nanoTime();
+        try {
+            return statementPool.simpleQueryForLong(SELECT_TOPIC_COMPLETED, userId, topicId) == 1;
+        } finally {
+            queryTracer.record("isTopicCompleted", start, 1, SELECT_TOPIC_COMPLETED);
         }
-        
-        return completed;
     }
     
     public int getAssessmentScore(int userId, int topicId) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        
-        Cursor cursor = db.query(TABLE_USER_PROGRESS,
-                new String[] { KEY_SCORE },
-                KEY_USER_ID + "=? AND " + KEY_TOPIC_ID + "=?",
-                new String[] { String.valueOf(userId), String.valueOf(topicId) },
-                null, null, null);
-        
-        int score = 0;
-        if (cursor != null && cursor.moveToFirst()) {
-            score = cursor.getInt(cursor.getColumnIndex(KEY_SCORE));
-        }
-        
-        if (cursor != null) {
-            cursor.close();
+        long start = System.nanoTime();
+        try {
+            return (int) statementPool.simpleQueryForLong(SELECT_TOPIC_SCORE, userId, topicId);
+        } finally {
+            queryTracer.record("getAssessmentScore", start, 1, SELECT_TOPIC_SCORE);
         }
-        
-        return score;
     }
     
     public int getCompletedTopicsCount(int userId) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        
-        Cursor cursor = db.query(TABLE_USER_PROGRESS,
-                new String[] { "COUNT(*)" },
-                KEY_USER_ID + "=? AND " + KEY_COMPLETED + "=?",
-                new String[] { String.valueOf(userId), String.valueOf(1) },
-                null, null, null);
-        
-        int count = 0;
-        if (cursor != null && cursor.moveToFirst()) {
-            count = cursor.getInt(0);
+        long start = System.nanoTime();
+        try {
+            return (int) statementPool.simpleQueryForLong(COUNT_COMPLETED_TOPICS, userId);
+        } finally {
+            queryTracer.record("getCompletedTopicsCount", start, 1, COUNT_COMPLETED_TOPICS);
         }
-        
-        if (cursor != null) {
-            cursor.close();
+    }
+    
+    /**
+     * Every progress row of one user, for the in-memory progress snapshot. Titles
+     * live in the content database and are left null.
+     */
+    public List<TopicProgress> getProgressForUser(int userId) {
+        long start = System.nanoTime();
+        List<TopicProgress> progress = new ArrayList<>();
+        try {
+            Cursor cursor = this.getReadableDatabase().rawQuery(SELECT_USER_PROGRESS,
+                    new String[] { String.valueOf(userId) });
+            try {
+                while (cursor.moveToNext()) {
+                    progress.add(new TopicProgress(cursor.getInt(0), null,
+                            cursor.getInt(1) == 1, cursor.getInt(2)));
+                }
+            } finally {
+                cursor.close();
+            }
+            return progress;
+        } finally {
+            queryTracer.record("getProgressForUser", start, progress.size(), SELECT_USER_PROGRESS);
         }
-        
-        return count;
     }
     
+    // Traced through getCompletedTopicsCount
     public float getOverallProgress(int userId, int totalTopics) {
         if (totalTopics == 0) return 0;
         return (float) getCompletedTopicsCount(userId) / totalTopics * 100;
     }
     
     /**
-     * Deletes a user's profile and all associated data
+     * Deletes a user's profile and all associated data. One DELETE on user_profiles;
+     * rows in user-owned tables follow through ON DELETE CASCADE in the same statement,
+     * so the whole deletion is a single transaction.
      * 
      * @param email The email of the user to delete
-     * @return true if successful, false otherwise
+     * @return true if a user was deleted, false otherwise
      */
     public boolean deleteUserByEmail(String email) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        boolean success = false;
-        db.beginTransaction();
-        
+        long start = System.nanoTime();
+        int rows = 0;
         try {
-            // First, get the user ID
-            Cursor cursor = db.query(TABLE_USER_PROFILES,
-                    new String[] { KEY_ID },
-                    KEY_EMAIL + "=?",
-                    new String[] { email },
-                    null, null, null);
-            
-            if (cursor != null && cursor.moveToFirst()) {
-                int userId = cursor.getInt(cursor.getColumnIndex(KEY_ID));
-                
-                // Delete user progress data
-                db.delete(TABLE_USER_PROGRESS, KEY_USER_ID + "=?", 
-                        new String[] { String.valueOf(userId) });
-                
-                // Delete user profile
-                db.delete(TABLE_USER_PROFILES, KEY_ID + "=?", 
-                        new String[] { String.valueOf(userId) });
-                
-                success = true;
-            }
-            
-            if (cursor != null) {
-                cursor.close();
+            SQLiteStatement delete = this.getWritableDatabase().compileStatement(DELETE_USER_BY_EMAIL);
+            try {
+                delete.bindString(1, email);
+                rows = delete.executeUpdateDelete();
+            } finally {
+                delete.close();
             }
-            
-            db.setTransactionSuccessful();
-        } catch (Exception e) {
+        } catch (SQLException e) {
             e.printStackTrace();
-            success = false;
+            return false;
         } finally {
-            db.endTransaction();
+            queryTracer.record("deleteUserByEmail", start, rows, DELETE_USER_BY_EMAIL);
         }
         
-        return success;
+        if (rows > 0) {
+            invalidationTracker.notifyChanged(TABLE_USER_PROGRESS, TABLE_USER_PROFILES);
+        }
+        return rows > 0;
     }
 
     public List<UserProfile> getAllUserProfiles() {
+        long start = System.nanoTime();
         List<UserProfile> userProfiles = new ArrayList<>();
-        SQLiteDatabase db = this.getReadableDatabase();
-
-        String selectQuery = "SELECT * FROM " + TABLE_USER_PROFILES;
-        Cursor cursor = db.rawQuery(selectQuery, null);
-
-        if (cursor.moveToFirst()) {
-            do {
-                UserProfile profile = new UserProfile();
-                profile.setId(cursor.getInt(cursor.getColumnIndex(KEY_ID)));
-                profile.setUsername(cursor.getString(cursor.getColumnIndex(KEY_USERNAME)));
-                profile.setEmail(cursor.getString(cursor.getColumnIndex(KEY_EMAIL)));
-                profile.setPasswordHash(cursor.getString(cursor.getColumnIndex(KEY_PASSWORD_HASH)));
-                profile.setInterests(cursor.getString(cursor.getColumnIndex(KEY_INTERESTS)));
-                userProfiles.add(profile);
-            } while (cursor.moveToNext());
-        }
-
-        cursor.close();
-        return userProfiles;
-    }
-
-    public String getDatabaseContents() {
-        StringBuilder contents = new StringBuilder();
-        SQLiteDatabase db = this.getReadableDatabase();
-
-        // Get all tables
-        Cursor cursor = db.rawQuery("SELECT name FROM sqlite_master WHERE type='table'", null);
-        if (cursor.moveToFirst()) {
-            do {
-                String tableName = cursor.getString(0);
-                contents.append("\nTable: ").append(tableName).append("\n");
-                contents.append("----------------------------------------\n");
-
-                // Get table contents
-                Cursor tableCursor = db.rawQuery("SELECT * FROM " + tableName, null);
-                if (tableCursor.moveToFirst()) {
-                    // Get column names
-                    String[] columnNames = tableCursor.getColumnNames();
-                    for (String columnName : columnNames) {
-                        contents.append(columnName).append("\t");
-                    }
-                    contents.append("\n");
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
 
-                    // Get rows
-                    do {
-                        for (String columnName : columnNames) {
-                            String value = tableCursor.getString(tableCursor.getColumnIndex(columnName));
-                            contents.append(value).append("\t");
-                        }
-                        contents.append("\n");
-                    } while (tableCursor.moveToNext());
+            Cursor cursor = db.rawQuery(SELECT_ALL_USER_PROFILES, null);
+            try {
+                while (cursor.moveToNext()) {
+                    userProfiles.add(readUserProfile(cursor));
                 }
-                tableCursor.close();
-                contents.append("\n");
-            } while (cursor.moveToNext());
+            } finally {
+                cursor.close();
+            }
+            return userProfiles;
+        } finally {
+            queryTracer.record("getAllUserProfiles", start, userProfiles.size(), SELECT_ALL_USER_PROFILES);
         }
-        cursor.close();
+    }
 
-        return contents.toString();
+    private static UserProfile readUserProfile(Cursor cursor) {
+        UserProfile profile = new UserProfile();
+        profile.setId(cursor.getInt(COLUMN_ID));
+        profile.setUsername(cursor.getString(COLUMN_USERNAME));
+        profile.setEmail(cursor.getString(COLUMN_EMAIL));
+        profile.setPasswordHash(cursor.getString(COLUMN_PASSWORD_HASH));
+        profile.setInterests(cursor.getString(COLUMN_INTERESTS));
+        return profile;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,317 @@
+package com.example.personalizedlearning.db;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Debug browser over both stores, backing DatabaseViewerActivity.
+ *
+ * Tables are read in rowid order, one bounded page at a time
+ * (WHERE rowid > ? ORDER BY rowid LIMIT ?), so nothing ever holds a whole table in
+ * memory. Exports reuse the same paging and write each page straight to disk.
+ * Table and column names are only accepted if they came from {@link #listTables}.
+ */
+public class DatabaseInspector {
+    // afterRowid for the first page; rowids can be zero or negative
+    public static final long FIRST_PAGE = Long.MIN_VALUE;
+
+    // Cells shown on screen are cut to this many characters; exports are not
+    private static final int DISPLAY_CELL_CHARS = 120;
+    private static final int EXPORT_PAGE_SIZE = 1000;
+
+    private static final String[] SCHEMAS = { "main", ContentDatabase.USER_SCHEMA };
+
+    private final ContentDatabase contentDb;
+
+    public DatabaseInspector(ContentDatabase contentDb) {
+        this.contentDb = contentDb;
+    }
+
+    public static class TableInfo {
+        private final String schema;
+        private final String name;
+        private final List<String> columns;
+        private final long rowCount;
+
+        TableInfo(String schema, String name, List<String> columns, long rowCount) {
+            this.schema = schema;
+            this.name = name;
+            this.columns = columns;
+            this.rowCount = rowCount;
+        }
+
+        public String getSchema() {
+            return schema;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /** "schema"."table", safe to put into SQL */
+        String getQualifiedName() {
+            return quote(schema) + "." + quote(name);
+        }
+
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        public long getRowCount() {
+            return rowCount;
+        }
+
+        @Override
+        public String toString() {
+            return schema + "." + name + " (" + rowCount + ")";
+        }
+    }
+
+    public static class Page {
+        private final List<String[]> rows;
+        private final long lastRowid;
+        private final boolean last;
+
+        Page(List<String[]> rows, long lastRowid, boolean last) {
+            this.rows = rows;
+            this.lastRowid = lastRowid;
+            this.last = last;
+        }
+
+        /** Cell values in the order of the requested columns */
+        public List<String[]> getRows() {
+            return rows;
+        }
+
+        /** Pass to {@link #readPage} to get the page after this one */
+        public long getLastRowid() {
+            return lastRowid;
+        }
+
+        public boolean isLast() {
+            return last;
+        }
+    }
+
+    /**
+     * Every table of the content and user databases with its columns and row count.
+     */
+    public List<TableInfo> listTables() {
+        return contentDb.readAcrossStores(db -> {
+            List<TableInfo> tables = new ArrayList<>();
+            for (String schema : SCHEMAS) {
+                Cursor cursor = db.rawQuery("SELECT name FROM " + quote(schema) + ".sqlite_master " +
+                        "WHERE type = 'table' AND name NOT LIKE 'sqlite_%' ORDER BY name", null);
+                try {
+                    while (cursor.moveToNext()) {
+                        String name = cursor.getString(0);
+                        String qualified = quote(schema) + "." + quote(name);
+                        long rows = queryLong(db, "SELECT COUNT(*) FROM " + qualified);
+                        tables.add(new TableInfo(schema, name, readColumns(db, schema, name), rows));
+                    }
+                } finally {
+                    cursor.close();
+                }
+            }
+            return tables;
+        });
+    }
+
+    /**
+     * Reads up to {@code limit} rows after {@code afterRowid} ({@link #FIRST_PAGE} to start).
+     *
+     * @param columns the columns to show, a subset of {@link TableInfo#getColumns}
+     */
+    public Page readPage(TableInfo table, List<String> columns, long afterRowid, int limit) {
+        String sql = selectPage(table, columns, true) + " LIMIT " + limit;
+        return contentDb.readAcrossStores(db -> {
+            List<String[]> rows = new ArrayList<>(limit);
+            long lastRowid = afterRowid;
+            Cursor cursor = db.rawQuery(sql, new String[] { String.valueOf(afterRowid) });
+            try {
+                while (cursor.moveToNext()) {
+                    lastRowid = cursor.getLong(0);
+                    rows.add(readCells(cursor, columns.size()));
+                }
+            } finally {
+                cursor.close();
+            }
+            return new Page(rows, lastRowid, rows.size() < limit);
+        });
+    }
+
+    /**
+     * Writes the selected columns of {@code table} to {@code target} as CSV, page by
+     * page, and returns the number of rows written.
+     */
+    public long exportCsv(TableInfo table, List<String> columns, File target) throws IOException {
+        String sql = selectPage(table, columns, false) + " LIMIT " + EXPORT_PAGE_SIZE;
+        File tmp = new File(target.getPath() + ".tmp");
+        long written = 0;
+        try (Writer out = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8), 64 * 1024)) {
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) out.write(',');
+                writeCsvField(out, columns.get(i));
+            }
+            out.write('\n');
+
+            long afterRowid = FIRST_PAGE;
+            while (true) {
+                final long from = afterRowid;
+                // The read lock is taken per page, so a long export never blocks a content swap
+                ExportedPage page = contentDb.readAcrossStores(db -> {
+                    Cursor cursor = db.rawQuery(sql, new String[] { String.valueOf(from) });
+                    try {
+                        return writeRows(cursor, columns.size(), out);
+                    } catch (IOException e) {
+                        return new ExportedPage(e);
+                    } finally {
+                        cursor.close();
+                    }
+                });
+                if (page.error != null) {
+                    throw page.error;
+                }
+                written += page.rows;
+                if (page.rows < EXPORT_PAGE_SIZE) {
+                    break;
+                }
+                afterRowid = page.lastRowid;
+            }
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+        if (!tmp.renameTo(target)) {
+            tmp.delete();
+            throw new IOException("Cannot rename " + tmp + " to " + target);
+        }
+        return written;
+    }
+
+    // Result of one export page; IOException cannot cross the Query lambda directly
+    private static class ExportedPage {
+        final int rows;
+        final long lastRowid;
+        final IOException error;
+
+        ExportedPage(int rows, long lastRowid) {
+            this.rows = rows;
+            this.lastRowid = lastRowid;
+            this.error = null;
+        }
+
+        ExportedPage(IOException error) {
+            this.rows = 0;
+            this.lastRowid = 0;
+            this.error = error;
+        }
+    }
+
+    private static ExportedPage writeRows(Cursor cursor, int columnCount, Writer out) throws IOException {
+        int rows = 0;
+        long lastRowid = 0;
+        while (cursor.moveToNext()) {
+            lastRowid = cursor.getLong(0);
+            for (int i = 0; i < columnCount; i++) {
+                if (i > 0) out.write(',');
+                // SQL NULL is left as an empty field; an empty string is written as ""
+                if (cursor.getType(i + 1) == Cursor.FIELD_TYPE_BLOB) {
+                    writeCsvField(out, "<blob " + cursor.getBlob(i + 1).length + " bytes>");
+                } else if (!cursor.isNull(i + 1)) {
+                    writeCsvField(out, cursor.getString(i + 1));
+                }
+            }
+            out.write('\n');
+            rows++;
+        }
+        return new ExportedPage(rows, lastRowid);
+    }
+
+    private static void writeCsvField(Writer out, String value) throws IOException {
+        if (!value.isEmpty() && value.indexOf(',') < 0 && value.indexOf('"') < 0
+                && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    /*
+     * SELECT rowid, <columns> FROM <table> WHERE rowid > ? ORDER BY rowid
+     * For display, cells are cut down in SQL so long text never reaches the cursor
+     * window, and blobs are summarized.
+     */
+    private static String selectPage(TableInfo table, List<String> columns, boolean forDisplay) {
+        for (String column : columns) {
+            if (!table.getColumns().contains(column)) {
+                throw new IllegalArgumentException("No column " + column + " in " + table);
+            }
+        }
+        StringBuilder sql = new StringBuilder("SELECT rowid");
+        for (String column : columns) {
+            String quoted = quote(column);
+            sql.append(", ");
+            if (forDisplay) {
+                sql.append("CASE typeof(").append(quoted).append(") ")
+                        .append("WHEN 'blob' THEN '<blob ' || length(").append(quoted).append(") || ' bytes>' ")
+                        .append("ELSE substr(").append(quoted).append(", 1, ").append(DISPLAY_CELL_CHARS)
+                        .append(") END");
+            } else {
+                sql.append(quoted);
+            }
+        }
+        return sql.append(" FROM ").append(table.getQualifiedName())
+                .append(" WHERE rowid > ? ORDER BY rowid").toString();
+    }
+
+    // SQL NULL stays null, for the viewer to mark
+    private static String[] readCells(Cursor cursor, int columnCount) {
+        String[] cells = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            cells[i] = cursor.getString(i + 1);
+        }
+        return cells;
+    }
+
+    private static List<String> readColumns(SQLiteDatabase db, String schema, String table) {
+        List<String> columns = new ArrayList<>();
+        Cursor cursor = db.rawQuery("PRAGMA " + quote(schema) + ".table_info(" + quote(table) + ")", null);
+        try {
+            while (cursor.moveToNext()) {
+                // table_info: cid, name, type, notnull, dflt_value, pk
+                columns.add(cursor.getString(1));
+            }
+        } finally {
+            cursor.close();
+        }
+        return Collections.unmodifiableList(columns);
+    }
+
+    private static long queryLong(SQLiteDatabase db, String sql) {
+        Cursor cursor = db.rawQuery(sql, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+}
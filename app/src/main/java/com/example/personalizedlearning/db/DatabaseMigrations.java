@@ -0,0 +1,120 @@
+package com.example.personalizedlearning.db;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ordered registry of schema migrations for {@link DatabaseHelper}.
+ *
+ * Each step upgrades exactly one version and is written against the schema as it
+ * was at that version, so the SQL is spelled out here rather than built from the
+ * helper's current column constants. To change the schema: bump
+ * DATABASE_VERSION, update the CREATE statements used by onCreate, and append a
+ * step here.
+ */
+final class DatabaseMigrations {
+    private static final String TAG = "DatabaseMigrations";
+
+    // Version 2: unique (user_id, topic_id) index on user_progress
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            // The old select-then-write path could race and leave duplicates behind;
+            // keep the newest row of each pair so the unique index can be built.
+            db.execSQL("DELETE FROM user_progress WHERE id NOT IN (" +
+                    "SELECT MAX(id) FROM user_progress GROUP BY user_id, topic_id)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS idx_user_progress_user_topic " +
+                    "ON user_progress(user_id, topic_id)");
+        }
+    };
+
+    // Version 3 added topic_id indexes to the content tables. Version 4 drops those
+    // tables, since content moved to ContentDatabase, so building the indexes is wasted
+    // work on every path that reaches the current version. Kept as a no-op step so
+    // version 2 databases still find a migration.
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(SQLiteDatabase db) {
+        }
+    };
+
+    // Version 4: content moved to the read-only ContentDatabase; only user tables remain
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("DROP TABLE IF EXISTS topics");
+            db.execSQL("DROP TABLE IF EXISTS study_materials");
+            db.execSQL("DROP TABLE IF EXISTS assessment_questions");
+        }
+    };
+
+    // Version 5: user_progress.user_id references user_profiles with ON DELETE CASCADE.
+    // SQLite cannot add a constraint to an existing table, so the table is rebuilt;
+    // progress of users that no longer exist could not be shown and is not copied.
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE user_progress_new(id INTEGER PRIMARY KEY," +
+                    "user_id INTEGER REFERENCES user_profiles(id) ON DELETE CASCADE," +
+                    "topic_id INTEGER,completed INTEGER,score INTEGER)");
+            db.execSQL("INSERT INTO user_progress_new(id, user_id, topic_id, completed, score) " +
+                    "SELECT id, user_id, topic_id, completed, score FROM user_progress " +
+                    "WHERE user_id IN (SELECT id FROM user_profiles)");
+            db.execSQL("DROP TABLE user_progress");
+            db.execSQL("ALTER TABLE user_progress_new RENAME TO user_progress");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS idx_user_progress_user_topic " +
+                    "ON user_progress(user_id, topic_id)");
+        }
+    };
+
+    static final List<Migration> ALL = Collections.unmodifiableList(Arrays.asList(
+            MIGRATION_1_2,
+            MIGRATION_2_3,
+            MIGRATION_3_4,
+            MIGRATION_4_5
+    ));
+
+    private DatabaseMigrations() {
+    }
+
+    /**
+     * Runs every step between {@code oldVersion} and {@code newVersion}. Each step is its
+     * own nested transaction inside the upgrade transaction opened by SQLiteOpenHelper, so
+     * a failing step rolls the whole upgrade back and leaves the old version intact.
+     */
+    static void migrate(SQLiteDatabase db, int oldVersion, int newVersion) {
+        int version = oldVersion;
+        while (version < newVersion) {
+            Migration step = find(version);
+            if (step == null) {
+                throw new IllegalStateException("No migration from database version " + version);
+            }
+
+            long start = System.nanoTime();
+            db.beginTransaction();
+            try {
+                step.migrate(db);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            Log.i(TAG, "Migrated " + step.startVersion + " -> " + step.endVersion + " in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+            version = step.endVersion;
+        }
+    }
+
+    private static Migration find(int startVersion) {
+        for (Migration migration : ALL) {
+            if (migration.startVersion == startVersion) {
+                return migration;
+            }
+        }
+        return null;
+    }
+}
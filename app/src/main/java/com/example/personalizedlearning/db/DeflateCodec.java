@@ -0,0 +1,85 @@
+package com.example.personalizedlearning.db;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate (zlib) encoding of UTF-8 text.
+ *
+ * The stream is prefixed with the UTF-8 length as a 4-byte big-endian int, so
+ * decoding inflates straight into one exactly sized array instead of growing a
+ * buffer. Encoding runs once per body when content is installed and uses the best
+ * compression level; inflating is equally fast whatever the level.
+ */
+final class DeflateCodec implements ContentCodec {
+    static final int ID = 1;
+    static final DeflateCodec INSTANCE = new DeflateCodec();
+
+    private static final int HEADER_SIZE = 4;
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private DeflateCodec() {
+    }
+
+    @Override
+    public int getId() {
+        return ID;
+    }
+
+    @Override
+    public byte[] encode(String text) {
+        byte[] plain = text.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(plain);
+            deflater.finish();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(HEADER_SIZE + plain.length / 2);
+            out.write(plain.length >>> 24);
+            out.write(plain.length >>> 16);
+            out.write(plain.length >>> 8);
+            out.write(plain.length);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                int written = deflater.deflate(buffer);
+                out.write(buffer, 0, written);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public String decode(byte[] data) {
+        if (data == null || data.length < HEADER_SIZE) {
+            throw new IllegalStateException("Deflated content is truncated");
+        }
+        int length = (data[0] & 0xff) << 24 | (data[1] & 0xff) << 16 | (data[2] & 0xff) << 8 | (data[3] & 0xff);
+        if (length < 0) {
+            throw new IllegalStateException("Deflated content has a bad length " + length);
+        }
+
+        byte[] plain = new byte[length];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, HEADER_SIZE, data.length - HEADER_SIZE);
+            int inflated = 0;
+            while (inflated < length) {
+                int read = inflater.inflate(plain, inflated, length - inflated);
+                if (read == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Deflated content is truncated");
+                }
+                inflated += read;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Deflated content is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+        return new String(plain, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.personalizedlearning.db;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Table-level change notifications for the app's databases.
+ *
+ * Writers call {@link #notifyChanged} once their statement or transaction has
+ * committed. Observers register for the tables their query reads and are told
+ * which of those tables changed. Notifications are coalesced: every table
+ * reported within {@link #DISPATCH_DELAY_MS} of the first one is delivered in a
+ * single call, on a shared background thread, never on the main thread.
+ */
+public class InvalidationTracker {
+    // Long enough to merge the writes of one user action, short enough to go unnoticed
+    static final long DISPATCH_DELAY_MS = 50;
+
+    private static Handler dispatchHandler;
+
+    private final Map<Observer, Set<String>> observers = new LinkedHashMap<>();
+    private final Set<String> pendingTables = new HashSet<>();
+    private boolean dispatchScheduled;
+
+    public interface Observer {
+        /** Called on the tracker's background thread with the observed tables that changed. */
+        void onInvalidated(Set<String> tables);
+    }
+
+    InvalidationTracker() {
+    }
+
+    /** Registers {@code observer} for writes to any of {@code tables}. */
+    public synchronized void addObserver(Observer observer, String... tables) {
+        observers.put(observer, new HashSet<>(Arrays.asList(tables)));
+    }
+
+    public synchronized void removeObserver(Observer observer) {
+        observers.remove(observer);
+    }
+
+    /**
+     * Records that {@code tables} were written. Call after the write has committed,
+     * otherwise observers may re-query and still see the old rows.
+     */
+    public void notifyChanged(String... tables) {
+        synchronized (this) {
+            Collections.addAll(pendingTables, tables);
+            if (dispatchScheduled) return;
+            dispatchScheduled = true;
+        }
+        getDispatchHandler().postDelayed(this::dispatch, DISPATCH_DELAY_MS);
+    }
+
+    private void dispatch() {
+        Set<String> changed;
+        List<Map.Entry<Observer, Set<String>>> targets;
+        synchronized (this) {
+            changed = new HashSet<>(pendingTables);
+            pendingTables.clear();
+            dispatchScheduled = false;
+            targets = new ArrayList<>(observers.entrySet());
+        }
+
+        // Observers are called without the lock so they may add or remove observers
+        for (Map.Entry<Observer, Set<String>> target : targets) {
+            Set<String> relevant = new HashSet<>(target.getValue());
+            relevant.retainAll(changed);
+            if (!relevant.isEmpty()) {
+                target.getKey().onInvalidated(Collections.unmodifiableSet(relevant));
+            }
+        }
+    }
+
+    // One thread serves every tracker; test databases create trackers of their own
+    private static synchronized Handler getDispatchHandler() {
+        if (dispatchHandler == null) {
+            HandlerThread thread = new HandlerThread("db-invalidation", Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            dispatchHandler = new Handler(thread.getLooper());
+        }
+        return dispatchHandler;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.personalizedlearning.db;
+
+/**
+ * Fixed-bucket latency histogram. Recording is a bucket increment, so it is cheap
+ * enough to run on every query; percentiles are reported as the upper bound of the
+ * bucket they fall in.
+ */
+final class LatencyHistogram {
+    // Bucket upper bounds in microseconds; the last bucket is open ended
+    static final long[] BOUNDS_MICROS = {
+            100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000
+    };
+
+    private final long[] counts = new long[BOUNDS_MICROS.length + 1];
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+
+    synchronized void record(long nanos) {
+        long micros = nanos / 1000;
+        int bucket = 0;
+        while (bucket < BOUNDS_MICROS.length && micros > BOUNDS_MICROS[bucket]) {
+            bucket++;
+        }
+        counts[bucket]++;
+        count++;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    synchronized long getCount() {
+        return count;
+    }
+
+    synchronized long getMeanMicros() {
+        return count == 0 ? 0 : totalNanos / count / 1000;
+    }
+
+    synchronized long getMaxMicros() {
+        return maxNanos / 1000;
+    }
+
+    /**
+     * Upper bound, in microseconds, of the bucket holding {@code percentile}; the
+     * maximum seen when it falls in the open-ended bucket, 0 when nothing was recorded.
+     */
+    synchronized long percentileMicros(int percentile) {
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BOUNDS_MICROS.length; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Math.min(BOUNDS_MICROS[bucket], getMaxMicros());
+            }
+        }
+        return getMaxMicros();
+    }
+}
@@ -0,0 +1,552 @@
+package com.example.personalizedlearning.db;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.example.personalizedlearning.utils.MappedKeyValueStore;
+import com.example.personalizedlearning.utils.PasswordHasher;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous access layer over {@link DatabaseHelper} (users and progress) and
+ * {@link ContentDatabase} (topics, materials and questions).
+ *
+ * Every read and write runs on a background executor and results are delivered
+ * back on the main thread. Reads queue up to a bound and are rejected past it,
+ * since a screen can simply ask again; writes are never rejected. Requests bound to a {@link LifecycleOwner}
+ * (normally a fragment's view lifecycle owner) are cancelled automatically when
+ * that owner is destroyed, so callbacks never touch a dead view.
+ */
+public class LearningRepository {
+    private static final String TAG = "LearningRepository";
+
+    // Reads can run side by side; writes are serialized on their own thread
+    private static final int READ_THREADS = 2;
+    private static final int MAX_QUEUED_READS = 32;
+
+    // Debug exports walk whole tables; they get their own thread so they never hold up reads
+    private static final int MAX_QUEUED_EXPORTS = 4;
+
+    // Password hashing takes the calibrated budget per call; a few taps at most queue up
+    private static final int MAX_QUEUED_HASHES = 4;
+    private static final String HASHER_STORE_FILE = "password_hasher.kv";
+    private static final String KEY_HASH_ITERATIONS = "pbkdf2_iterations";
+
+    private static LearningRepository instance;
+
+    private final Context context;
+    private final DatabaseHelper dbHelper;
+    private final ContentDatabase contentDb;
+    private final DatabaseInspector inspector;
+    private final ExecutorService readExecutor;
+    private final ExecutorService writeExecutor;
+    private final ExecutorService hashExecutor;
+    private final ExecutorService exportExecutor;
+    private final ProgressWriteQueue progressQueue;
+    // Created on the hash thread at first use
+    private PasswordHasher passwordHasher;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public interface Callback<T> {
+        void onResult(T result);
+
+        default void onError(Exception e) {
+            Log.e(TAG, "Database request failed", e);
+        }
+    }
+
+    /** Receives partial results on the main thread while a streaming read is running. */
+    public interface BatchListener<T> {
+        void onBatch(List<T> batch);
+    }
+
+    /**
+     * Handle for a request that is queued or running on the background executor.
+     * Cancelling a read drops it from the queue; cancelling a write only suppresses
+     * its callback, the write itself still runs.
+     */
+    public static class Request {
+        private final boolean write;
+        private volatile boolean cancelled;
+        private volatile Future<?> future;
+
+        Request(boolean write) {
+            this.write = write;
+        }
+
+        public void cancel() {
+            cancelled = true;
+            Future<?> f = future;
+            if (f != null && !write) {
+                f.cancel(false);
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    public static synchronized LearningRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new LearningRepository(context.getApplicationContext(),
+                    DatabaseHelper.getInstance(context), ContentDatabase.getInstance(context));
+        }
+        return instance;
+    }
+
+    private LearningRepository(Context context, DatabaseHelper dbHelper, ContentDatabase contentDb) {
+        this.context = context;
+        this.dbHelper = dbHelper;
+        this.contentDb = contentDb;
+        this.inspector = new DatabaseInspector(contentDb);
+        this.readExecutor = new ThreadPoolExecutor(READ_THREADS, READ_THREADS,
+                30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(MAX_QUEUED_READS),
+                new NamedThreadFactory("db-read"));
+        this.writeExecutor = new ThreadPoolExecutor(1, 1,
+                30, TimeUnit.SECONDS,
+                // Unbounded: a rejected write would be lost, e.g. a completed topic
+                new LinkedBlockingQueue<>(),
+                new NamedThreadFactory("db-write"));
+        this.hashExecutor = new ThreadPoolExecutor(1, 1,
+                30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(MAX_QUEUED_HASHES),
+                new NamedThreadFactory("password-hash"));
+        this.exportExecutor = new ThreadPoolExecutor(1, 1,
+                30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(MAX_QUEUED_EXPORTS),
+                new NamedThreadFactory("db-export"));
+        this.progressQueue = new ProgressWriteQueue(dbHelper, writeExecutor);
+    }
+
+    /*
+     * Content reads
+     */
+
+    public Request loadTopicPage(LifecycleOwner owner, long afterId, int limit,
+                                 Callback<List<Topic>> callback) {
+        return submit(readExecutor, owner, () -> contentDb.getTopicsAfter(afterId, limit), callback);
+    }
+
+    public Request loadStudySections(LifecycleOwner owner, int topicId, int afterPosition, int limit,
+                                     Callback<List<StudySection>> callback) {
+        return submit(readExecutor, owner,
+                () -> contentDb.getStudySections(topicId, afterPosition, limit), callback);
+    }
+
+    public Request loadQuestions(LifecycleOwner owner, int topicId,
+                                 Callback<List<AssessmentQuestion>> callback) {
+        return submit(readExecutor, owner, () -> contentDb.getQuestionsForTopic(topicId), callback);
+    }
+
+    public Request search(LifecycleOwner owner, String text, int limit,
+                          Callback<List<SearchResult>> callback) {
+        return submit(readExecutor, owner, () -> contentDb.search(text, limit), callback);
+    }
+
+    /*
+     * User reads
+     */
+
+    /**
+     * Loads every topic with the progress of the user with {@code email} in a single
+     * query. Rows reach {@code listener} in batches while the query is still running;
+     * {@code callback} receives the total row count at the end.
+     */
+    public Request loadTopicProgress(LifecycleOwner owner, String email, int batchSize,
+                                     BatchListener<TopicProgress> listener, Callback<Integer> callback) {
+        Request request = new Request(false);
+        // Pending progress writes land first so the screen never shows stale scores
+        return submitAfterProgressFlush(request, owner,
+                () -> contentDb.streamTopicProgress(email, batchSize, batch -> {
+                    if (request.isCancelled()) return false;
+                    mainHandler.post(() -> {
+                        if (!request.isCancelled()) listener.onBatch(batch);
+                    });
+                    return true;
+                }), callback);
+    }
+
+    /**
+     * Loads every progress row of the user signed in as {@code email}, including writes
+     * still waiting in the progress queue; empty if there is no such user.
+     */
+    public Request loadUserProgress(LifecycleOwner owner, String email, Callback<List<TopicProgress>> callback) {
+        return submitAfterProgressFlush(new Request(false), owner, () -> {
+            UserProfile user = dbHelper.getUserByEmail(email);
+            return user == null ? new ArrayList<TopicProgress>() : dbHelper.getProgressForUser(user.getId());
+        }, callback);
+    }
+
+    public Request loadUserByEmail(LifecycleOwner owner, String email, Callback<UserProfile> callback) {
+        return submit(readExecutor, owner, () -> dbHelper.getUserByEmail(email), callback);
+    }
+
+    /*
+     * Change observation
+     */
+
+    /**
+     * Calls {@code onChanged} on the main thread after writes to any of {@code tables}
+     * (for example {@link DatabaseHelper#TABLE_USER_PROGRESS}) until {@code owner} is
+     * destroyed, so a screen re-runs its query only when its data actually changed.
+     * A burst of writes results in a single call. Must be called on the main thread.
+     */
+    public void observe(LifecycleOwner owner, Runnable onChanged, String... tables) {
+        if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) return;
+
+        InvalidationTracker tracker = dbHelper.getInvalidationTracker();
+        Request request = new Request(false);
+        InvalidationTracker.Observer observer = changed -> mainHandler.post(() -> {
+            if (!request.isCancelled()) onChanged.run();
+        });
+        tracker.addObserver(observer, tables);
+        owner.getLifecycle().addObserver(new LifecycleEventObserver() {
+            @Override
+            public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+                if (event == Lifecycle.Event.ON_DESTROY) {
+                    request.cancel();
+                    tracker.removeObserver(observer);
+                    source.getLifecycle().removeObserver(this);
+                }
+            }
+        });
+    }
+
+    /*
+     * Debug inspector
+     */
+
+    public Request loadTables(LifecycleOwner owner, Callback<List<DatabaseInspector.TableInfo>> callback) {
+        return submit(readExecutor, owner, inspector::listTables, callback);
+    }
+
+    public Request loadTablePage(LifecycleOwner owner, DatabaseInspector.TableInfo table, List<String> columns,
+                                 long afterRowid, int limit, Callback<DatabaseInspector.Page> callback) {
+        return submit(readExecutor, owner,
+                () -> inspector.readPage(table, columns, afterRowid, limit), callback);
+    }
+
+    public Request exportTable(LifecycleOwner owner, DatabaseInspector.TableInfo table, List<String> columns,
+                               File target, Callback<Long> callback) {
+        return submit(exportExecutor, owner, () -> inspector.exportCsv(table, columns, target), callback);
+    }
+
+    /*
+     * Accounts
+     */
+
+    /**
+     * Checks {@code password} for the account with {@code email} on the password
+     * hashing thread. A legacy or weaker hash that matches is replaced by a new one
+     * in the background before the result is delivered.
+     */
+    public Request signIn(LifecycleOwner owner, String email, String password,
+                          Callback<SignInResult> callback) {
+        return submit(hashExecutor, owner, () -> {
+            UserProfile user = dbHelper.getUserByEmail(email);
+            if (user == null) {
+                return new SignInResult(SignInResult.Status.NO_ACCOUNT, null);
+            }
+            PasswordHasher hasher = getPasswordHasher();
+            if (!hasher.verify(password, user.getPasswordHash())) {
+                return new SignInResult(SignInResult.Status.WRONG_PASSWORD, null);
+            }
+            if (hasher.needsRehash(user.getPasswordHash())) {
+                String upgraded = hasher.hash(password);
+                // Not bound to the screen: the upgrade must land even if it is left
+                submit(writeExecutor, null, () -> dbHelper.updatePasswordHash(email, upgraded), null);
+            }
+            return new SignInResult(SignInResult.Status.SIGNED_IN, user);
+        }, callback);
+    }
+
+    /**
+     * Hashes {@code password} on the password hashing thread, then creates the
+     * profile on the write thread. Delivers the new row id, or -1 if it exists.
+     */
+    public Request createAccount(LifecycleOwner owner, String username, String email, String password,
+                                 String interests, Callback<Long> callback) {
+        // A write: cancelling only suppresses the callback
+        Request request = new Request(true);
+        return submit(request, hashExecutor, owner, () -> {
+            String passwordHash = getPasswordHasher().hash(password);
+            // Chained rather than waited for, so the hash thread is free for the next request
+            submit(request, writeExecutor, null,
+                    () -> dbHelper.createUserProfile(username, email, passwordHash, interests), callback);
+            return null;
+        }, errorsTo(callback));
+    }
+
+    // Only called on the hash thread. The calibrated work factor is kept, so it
+    // is measured once per install and stored hashes do not churn between runs
+    private PasswordHasher getPasswordHasher() {
+        if (passwordHasher != null) return passwordHasher;
+
+        File file = new File(context.getFilesDir(), HASHER_STORE_FILE);
+        try (MappedKeyValueStore store = MappedKeyValueStore.open(file)) {
+            int iterations = store.getInt(KEY_HASH_ITERATIONS, 0);
+            if (iterations > 0) {
+                passwordHasher = new PasswordHasher(iterations);
+            } else {
+                passwordHasher = PasswordHasher.calibrate(PasswordHasher.DEFAULT_BUDGET_MS);
+                store.edit().putInt(KEY_HASH_ITERATIONS, passwordHasher.getIterations()).commit();
+                Log.i(TAG, "Calibrated password hashing to " + passwordHasher.getIterations() + " iterations");
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Password hashing calibration not stored", e);
+            if (passwordHasher == null) {
+                passwordHasher = PasswordHasher.calibrate(PasswordHasher.DEFAULT_BUDGET_MS);
+            }
+        }
+        return passwordHasher;
+    }
+
+    /*
+     * Writes
+     */
+
+    /**
+     * Updates the profile stored under {@code oldEmail}. Delivers false if there is no
+     * such account: accounts are only created by {@link #createAccount}, with a password.
+     */
+    public Request saveUserProfile(LifecycleOwner owner, String oldEmail, String username, String email,
+                                   String interests, Callback<Boolean> callback) {
+        return submit(writeExecutor, owner,
+                () -> dbHelper.updateUserProfile(oldEmail, username, email, interests) > 0, callback);
+    }
+
+    /**
+     * Records progress for the user signed in as {@code email}; nothing is written if
+     * no profile with that email exists. The write is queued in the
+     * {@link ProgressWriteQueue} and committed with others in one transaction.
+     * {@link ProgressUpdate#KEEP_SCORE} completes the topic and keeps its score.
+     */
+    public Request markTopicCompleted(String email, int topicId, int score) {
+        // Progress writes are not bound to a view: they must complete even if the
+        // screen that triggered them goes away.
+        return submit(writeExecutor, null, () -> {
+            UserProfile user = dbHelper.getUserByEmail(email);
+            if (user != null) {
+                progressQueue.markTopicCompleted(user.getId(), topicId, score);
+            }
+            return null;
+        }, null);
+    }
+
+    /** Commits queued progress writes in the background, e.g. when the app is paused. */
+    public void flushProgressAsync() {
+        progressQueue.flushAsync();
+    }
+
+    /**
+     * Commits queued progress writes on the write thread, behind the writes already
+     * queued there, and waits up to {@code timeoutMs} for them: the last chance before
+     * the process may be killed, e.g. when the app is stopped. A flush that times out
+     * keeps running.
+     *
+     * @return whether every progress write made before the call is on disk
+     */
+    public boolean flushProgress(long timeoutMs) {
+        Future<Integer> flushed;
+        try {
+            flushed = writeExecutor.submit(progressQueue::flush);
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+        try {
+            flushed.get(timeoutMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            // The batch went back into the queue; the next flush retries it
+            Log.e(TAG, "Progress flush failed", e.getCause());
+            progressQueue.flushAsync();
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Moves progress kept outside the database into user_progress for the user
+     * signed in as {@code email}, on the write thread. {@code readScores} also runs
+     * there and returns topic id to score; topics already in the table keep their
+     * row. Delivers the number of topics written once they are committed, and fails
+     * if no profile with that email exists, so the caller keeps its copy.
+     */
+    public Request importProgress(String email, Callable<Map<Integer, Integer>> readScores,
+                                  Callback<Integer> callback) {
+        return submit(writeExecutor, null, () -> {
+            Map<Integer, Integer> scores = readScores.call();
+            if (scores.isEmpty()) return 0;
+            UserProfile user = dbHelper.getUserByEmail(email);
+            if (user == null) {
+                throw new IllegalStateException("No profile for " + email);
+            }
+
+            // Queued writes are newer than anything being imported
+            progressQueue.flush();
+            for (TopicProgress existing : dbHelper.getProgressForUser(user.getId())) {
+                scores.remove(existing.getTopicId());
+            }
+            List<ProgressUpdate> updates = new ArrayList<>(scores.size());
+            for (Map.Entry<Integer, Integer> score : scores.entrySet()) {
+                updates.add(new ProgressUpdate(user.getId(), score.getKey(), score.getValue()));
+            }
+            dbHelper.markTopicsCompleted(updates);
+            return updates.size();
+        }, callback);
+    }
+
+    public Request deleteUserByEmail(LifecycleOwner owner, String email, Callback<Boolean> callback) {
+        return submit(writeExecutor, owner, () -> {
+            // Queued progress must not be written back after its user is gone
+            progressQueue.flush();
+            return dbHelper.deleteUserByEmail(email);
+        }, callback);
+    }
+
+    private <T> Request submit(ExecutorService executor, LifecycleOwner owner,
+                               Callable<T> work, Callback<T> callback) {
+        return submit(new Request(executor == writeExecutor), executor, owner, work, callback);
+    }
+
+    private <T> Request submit(Request request, ExecutorService executor, LifecycleOwner owner,
+                               Callable<T> work, Callback<T> callback) {
+        boolean write = request.write;
+
+        if (owner != null) {
+            if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+                request.cancel();
+                if (!write) return request;
+            } else {
+                bindToLifecycle(owner, request);
+            }
+        }
+
+        try {
+            request.future = executor.submit(() -> {
+                if (request.isCancelled() && !write) return;
+                try {
+                    T result = work.call();
+                    deliver(request, callback, result, null);
+                } catch (Exception e) {
+                    deliver(request, callback, null, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // A read queue is full; report it instead of blocking the caller
+            deliver(request, callback, null, e);
+        }
+        return request;
+    }
+
+    /**
+     * Commits queued progress on the write thread, then runs {@code read} on the read
+     * pool, so reads see every queued write without a read thread ever writing.
+     */
+    private <T> Request submitAfterProgressFlush(Request request, LifecycleOwner owner,
+                                                 Callable<T> read, Callback<T> callback) {
+        return submit(request, writeExecutor, owner, () -> {
+            progressQueue.flush();
+            // Chained, not waited for: the write thread moves on while the read runs
+            submit(request, readExecutor, null, read, callback);
+            return null;
+        }, errorsTo(callback));
+    }
+
+    // For the first step of a chained request: its result is handed on by the work
+    // itself, but a failure must still reach the caller
+    private static <T> Callback<T> errorsTo(Callback<?> callback) {
+        if (callback == null) return null;
+        return new Callback<T>() {
+            @Override
+            public void onResult(T result) {
+            }
+
+            @Override
+            public void onError(Exception e) {
+                callback.onError(e);
+            }
+        };
+    }
+
+    private <T> void deliver(Request request, Callback<T> callback, T result, Exception error) {
+        if (callback == null) {
+            if (error != null) {
+                Log.e(TAG, "Database request failed", error);
+            }
+            return;
+        }
+        mainHandler.post(() -> {
+            if (request.isCancelled()) return;
+            if (error != null) {
+                callback.onError(error);
+            } else {
+                callback.onResult(result);
+            }
+        });
+    }
+
+    private void bindToLifecycle(LifecycleOwner owner, Request request) {
+        // Lifecycle observers must be added on the main thread
+        Runnable bind = () -> owner.getLifecycle().addObserver(new LifecycleEventObserver() {
+            @Override
+            public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+                if (event == Lifecycle.Event.ON_DESTROY) {
+                    request.cancel();
+                    source.getLifecycle().removeObserver(this);
+                }
+            }
+        });
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            bind.run();
+        } else {
+            mainHandler.post(bind);
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger(1);
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + "-" + count.getAndIncrement());
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.personalizedlearning.db;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * A single incremental schema change from {@link #startVersion} to {@link #endVersion}.
+ * Steps must preserve existing rows; they are run in order by {@link DatabaseHelper#onUpgrade}.
+ */
+public abstract class Migration {
+    public final int startVersion;
+    public final int endVersion;
+
+    protected Migration(int startVersion, int endVersion) {
+        this.startVersion = startVersion;
+        this.endVersion = endVersion;
+    }
+
+    public abstract void migrate(SQLiteDatabase db);
+}
@@ -0,0 +1,98 @@
+package com.example.personalizedlearning.db;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Connection settings applied by {@link DatabaseHelper#onConfigure}.
+ *
+ * PRAGMAs are per connection. Android opens extra read connections in WAL mode
+ * and there is no hook for configuring them, so everything except
+ * journal_mode only applies to the primary connection, which handles all writes.
+ */
+public class PragmaProfile {
+    public static final String SYNCHRONOUS_OFF = "OFF";
+    public static final String SYNCHRONOUS_NORMAL = "NORMAL";
+    public static final String SYNCHRONOUS_FULL = "FULL";
+
+    public static final String TEMP_STORE_DEFAULT = "DEFAULT";
+    public static final String TEMP_STORE_FILE = "FILE";
+    public static final String TEMP_STORE_MEMORY = "MEMORY";
+
+    // What the platform gives us: rollback journal, stock sqlite settings
+    public static final PragmaProfile PLATFORM_DEFAULT =
+            new PragmaProfile("PLATFORM_DEFAULT", false, null, 0, -1, null);
+
+    // WAL with NORMAL sync: a commit can be lost on power failure but never corrupted
+    public static final PragmaProfile BALANCED =
+            new PragmaProfile("BALANCED", true, SYNCHRONOUS_NORMAL, 4 * 1024, 16L * 1024 * 1024, TEMP_STORE_MEMORY);
+
+    // WAL with FULL sync: every commit is fsynced
+    public static final PragmaProfile DURABLE =
+            new PragmaProfile("DURABLE", true, SYNCHRONOUS_FULL, 2 * 1024, 0, TEMP_STORE_DEFAULT);
+
+    private final String name;
+    private final boolean writeAheadLogging;
+    private final String synchronous;
+    private final int cacheSizeKb;
+    private final long mmapSizeBytes;
+    private final String tempStore;
+
+    /**
+     * @param synchronous   one of the SYNCHRONOUS_ constants, or null to keep the platform value
+     * @param cacheSizeKb   page cache size in KiB, or 0 to keep the sqlite default
+     * @param mmapSizeBytes memory-mapped I/O limit in bytes, 0 to disable, or -1 to keep the default
+     * @param tempStore     one of the TEMP_STORE_ constants, or null to keep the default
+     */
+    public PragmaProfile(String name, boolean writeAheadLogging, String synchronous,
+                         int cacheSizeKb, long mmapSizeBytes, String tempStore) {
+        this.name = name;
+        this.writeAheadLogging = writeAheadLogging;
+        this.synchronous = synchronous;
+        this.cacheSizeKb = cacheSizeKb;
+        this.mmapSizeBytes = mmapSizeBytes;
+        this.tempStore = tempStore;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isWriteAheadLogging() {
+        return writeAheadLogging;
+    }
+
+    void apply(SQLiteDatabase db) {
+        if (writeAheadLogging) {
+            db.enableWriteAheadLogging();
+        }
+        if (synchronous != null) {
+            pragma(db, "PRAGMA synchronous = " + synchronous);
+        }
+        if (cacheSizeKb > 0) {
+            // Negative values are interpreted as KiB rather than pages
+            pragma(db, "PRAGMA cache_size = -" + cacheSizeKb);
+        }
+        if (mmapSizeBytes >= 0) {
+            pragma(db, "PRAGMA mmap_size = " + mmapSizeBytes);
+        }
+        if (tempStore != null) {
+            pragma(db, "PRAGMA temp_store = " + tempStore);
+        }
+    }
+
+    // Some PRAGMAs return a row, which execSQL rejects; a query works for both kinds
+    static void pragma(SQLiteDatabase db, String sql) {
+        Cursor cursor = db.rawQuery(sql, null);
+        try {
+            cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
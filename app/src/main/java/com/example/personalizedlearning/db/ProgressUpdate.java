@@ -0,0 +1,35 @@
+package com.example.personalizedlearning.db;
+
+/**
+ * Model class representing a pending "topic completed with score" write
+ */
+public class ProgressUpdate {
+    /** Score of an update that completes the topic and keeps whatever score it has. */
+    public static final int KEEP_SCORE = -1;
+
+    private final int userId;
+    private final int topicId;
+    private final int score;
+
+    public ProgressUpdate(int userId, int topicId, int score) {
+        this.userId = userId;
+        this.topicId = topicId;
+        this.score = score;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public int getTopicId() {
+        return topicId;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public boolean keepsScore() {
+        return score == KEEP_SCORE;
+    }
+}
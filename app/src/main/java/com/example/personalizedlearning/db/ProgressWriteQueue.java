@@ -0,0 +1,145 @@
+package com.example.personalizedlearning.db;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Write-behind buffer for progress writes.
+ *
+ * Updates are kept in memory, one per (user, topic) with the latest score winning,
+ * and written by {@link DatabaseHelper#markTopicsCompleted} in a single transaction:
+ * {@link #FLUSH_DELAY_MS} after the first pending update, as soon as
+ * {@link #MAX_PENDING} updates are waiting, or when {@link #flush} is called.
+ * Working quickly through many items then costs one commit instead of one per item.
+ *
+ * Pending updates live only in memory until flushed; flush before the process may be
+ * killed (MainActivity waits for a flush on the write thread in onStop, through
+ * LearningRepository#flushProgress).
+ */
+public class ProgressWriteQueue {
+    private static final String TAG = "ProgressWriteQueue";
+
+    static final long FLUSH_DELAY_MS = 2000;
+    static final int MAX_PENDING = 32;
+
+    private final DatabaseHelper dbHelper;
+    private final Executor flushExecutor;
+    private final Handler timerHandler = new Handler(Looper.getMainLooper());
+    private final Runnable scheduledFlush = this::flushAsync;
+
+    // Guarded by this; insertion order is kept so rows are written in arrival order
+    private Map<Long, ProgressUpdate> pending = new LinkedHashMap<>();
+    private boolean timerScheduled;
+
+    // Held for a whole flush so an older batch can never commit after a newer one
+    private final Object flushLock = new Object();
+
+    ProgressWriteQueue(DatabaseHelper dbHelper, Executor flushExecutor) {
+        this.dbHelper = dbHelper;
+        this.flushExecutor = flushExecutor;
+    }
+
+    /**
+     * Queues "topic completed with {@code score}", replacing any pending score for the
+     * same topic. {@link ProgressUpdate#KEEP_SCORE} leaves the score as it is.
+     */
+    public void markTopicCompleted(int userId, int topicId, int score) {
+        boolean full;
+        synchronized (this) {
+            merge(pending, new ProgressUpdate(userId, topicId, score));
+            full = pending.size() >= MAX_PENDING;
+            if (!full) {
+                scheduleTimer();
+            }
+        }
+        if (full) {
+            flushAsync();
+        }
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /** Starts a flush on the write executor and returns immediately. */
+    public void flushAsync() {
+        try {
+            flushExecutor.execute(() -> {
+                try {
+                    flush();
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Progress flush failed, retrying later", e);
+                    scheduleTimer();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The executor is shutting down; the updates stay pending for the next attempt
+            Log.w(TAG, "Flush deferred", e);
+            scheduleTimer();
+        }
+    }
+
+    /**
+     * Writes every pending update in one transaction on the calling thread, waiting for
+     * a flush already in progress. When this returns, all updates queued before the call
+     * are durable.
+     *
+     * @return the number of rows written
+     */
+    public int flush() {
+        synchronized (flushLock) {
+            List<ProgressUpdate> batch;
+            synchronized (this) {
+                timerHandler.removeCallbacks(scheduledFlush);
+                timerScheduled = false;
+                if (pending.isEmpty()) return 0;
+                batch = new ArrayList<>(pending.values());
+                pending = new LinkedHashMap<>();
+            }
+
+            try {
+                dbHelper.markTopicsCompleted(batch);
+            } catch (RuntimeException e) {
+                // Put the batch back unless a newer score arrived in the meantime
+                synchronized (this) {
+                    Map<Long, ProgressUpdate> restored = new LinkedHashMap<>();
+                    for (ProgressUpdate update : batch) {
+                        merge(restored, update);
+                    }
+                    for (ProgressUpdate update : pending.values()) {
+                        merge(restored, update);
+                    }
+                    pending = restored;
+                }
+                throw e;
+            }
+            return batch.size();
+        }
+    }
+
+    private synchronized void scheduleTimer() {
+        if (!timerScheduled) {
+            timerScheduled = true;
+            timerHandler.postDelayed(scheduledFlush, FLUSH_DELAY_MS);
+        }
+    }
+
+    // A pending update already completes the topic, with a score worth keeping
+    private static void merge(Map<Long, ProgressUpdate> updates, ProgressUpdate update) {
+        long key = key(update.getUserId(), update.getTopicId());
+        if (update.keepsScore() && updates.containsKey(key)) return;
+        updates.put(key, update);
+    }
+
+    private static long key(int userId, int topicId) {
+        return ((long) userId << 32) | (topicId & 0xffffffffL);
+    }
+}
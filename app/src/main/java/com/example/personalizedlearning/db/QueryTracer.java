@@ -0,0 +1,215 @@
+package com.example.personalizedlearning.db;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Records how every public {@link DatabaseHelper} method performs: a latency
+ * histogram, rows read or written and the threads it ran on, per method.
+ *
+ * Calls made on the main thread are counted and logged as warnings. Calls slower
+ * than the slow-query threshold are logged together with the EXPLAIN QUERY PLAN of
+ * their statement, and the most recent ones are kept for the database viewer.
+ */
+public class QueryTracer {
+    private static final String TAG = "QueryTracer";
+
+    // One frame at 60 Hz
+    static final long DEFAULT_SLOW_QUERY_MS = 16;
+    private static final int MAX_SLOW_QUERIES = 20;
+
+    private final Supplier<SQLiteDatabase> explainDatabase;
+    private final Map<String, MethodStats> methods = new TreeMap<>();
+    private final Deque<SlowQuery> slowQueries = new ArrayDeque<>();
+    private volatile long slowQueryNanos = DEFAULT_SLOW_QUERY_MS * 1_000_000;
+
+    QueryTracer(Supplier<SQLiteDatabase> explainDatabase) {
+        this.explainDatabase = explainDatabase;
+    }
+
+    public void setSlowQueryThresholdMs(long thresholdMs) {
+        slowQueryNanos = thresholdMs * 1_000_000;
+    }
+
+    /**
+     * Records one call of {@code method} that began at {@code startNanos}
+     * ({@link System#nanoTime}). {@code sql} is the statement that dominated the call,
+     * explained if the call was slow; it may be null for plain inserts.
+     */
+    void record(String method, long startNanos, int rows, String sql) {
+        long nanos = System.nanoTime() - startNanos;
+        String thread = Thread.currentThread().getName();
+        boolean onMainThread = Looper.myLooper() == Looper.getMainLooper();
+
+        MethodStats stats;
+        synchronized (methods) {
+            stats = methods.get(method);
+            if (stats == null) {
+                stats = new MethodStats(method);
+                methods.put(method, stats);
+            }
+        }
+        stats.record(nanos, rows, thread, onMainThread);
+
+        if (onMainThread) {
+            Log.w(TAG, method + " ran on the main thread, " + nanos / 1000 + " us");
+        }
+        if (nanos >= slowQueryNanos) {
+            SlowQuery slow = new SlowQuery(method, nanos / 1000, rows, thread, sql, explain(sql));
+            Log.w(TAG, slow.toString());
+            synchronized (slowQueries) {
+                if (slowQueries.size() == MAX_SLOW_QUERIES) {
+                    slowQueries.removeLast();
+                }
+                slowQueries.addFirst(slow);
+            }
+        }
+    }
+
+    /** Per-method statistics, ordered by method name. */
+    public List<MethodStats> getMethodStats() {
+        synchronized (methods) {
+            return new ArrayList<>(methods.values());
+        }
+    }
+
+    /** The most recent slow calls, newest first. */
+    public List<SlowQuery> getSlowQueries() {
+        synchronized (slowQueries) {
+            return new ArrayList<>(slowQueries);
+        }
+    }
+
+    private String explain(String sql) {
+        if (sql == null) return "";
+        StringBuilder plan = new StringBuilder();
+        try {
+            // Parameters may stay unbound: the plan does not depend on their values
+            Cursor cursor = explainDatabase.get().rawQuery("EXPLAIN QUERY PLAN " + sql, null);
+            try {
+                int detail = cursor.getColumnIndexOrThrow("detail");
+                while (cursor.moveToNext()) {
+                    if (plan.length() > 0) plan.append('\n');
+                    plan.append(cursor.getString(detail));
+                }
+            } finally {
+                cursor.close();
+            }
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Cannot explain " + sql, e);
+        }
+        return plan.toString();
+    }
+
+    public static class MethodStats {
+        private final String method;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final Map<String, Integer> threads = new HashMap<>();
+        private long rows;
+        private long mainThreadCalls;
+
+        MethodStats(String method) {
+            this.method = method;
+        }
+
+        synchronized void record(long nanos, int rowCount, String thread, boolean onMainThread) {
+            latency.record(nanos);
+            rows += rowCount;
+            if (onMainThread) mainThreadCalls++;
+            Integer calls = threads.get(thread);
+            threads.put(thread, calls == null ? 1 : calls + 1);
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public long getCalls() {
+            return latency.getCount();
+        }
+
+        public long getPercentileMicros(int percentile) {
+            return latency.percentileMicros(percentile);
+        }
+
+        public synchronized long getRows() {
+            return rows;
+        }
+
+        public synchronized long getMainThreadCalls() {
+            return mainThreadCalls;
+        }
+
+        public synchronized Map<String, Integer> getThreads() {
+            return new TreeMap<>(threads);
+        }
+
+        @Override
+        public String toString() {
+            return method + ": " + getCalls() + " calls, p50 " + getPercentileMicros(50)
+                    + " us, p95 " + getPercentileMicros(95) + " us, max " + latency.getMaxMicros()
+                    + " us, " + getRows() + " rows, " + getMainThreadCalls() + " on main, "
+                    + getThreads();
+        }
+    }
+
+    public static class SlowQuery {
+        private final String method;
+        private final long micros;
+        private final int rows;
+        private final String thread;
+        private final String sql;
+        private final String plan;
+
+        SlowQuery(String method, long micros, int rows, String thread, String sql, String plan) {
+            this.method = method;
+            this.micros = micros;
+            this.rows = rows;
+            this.thread = thread;
+            this.sql = sql;
+            this.plan = plan;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public long getMicros() {
+            return micros;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public String getThread() {
+            return thread;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public String getPlan() {
+            return plan;
+        }
+
+        @Override
+        public String toString() {
+            return "Slow " + method + ": " + micros / 1000 + " ms, " + rows + " rows on " + thread
+                    + (sql == null ? "" : "\n  " + sql)
+                    + (plan.isEmpty() ? "" : "\n  " + plan.replace("\n", "\n  "));
+        }
+    }
+}
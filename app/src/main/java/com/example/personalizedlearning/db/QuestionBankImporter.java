@@ -0,0 +1,445 @@
+package com.example.personalizedlearning.db;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Bulk loader for assessment question banks.
+ *
+ * The bank is streamed row by row from JSON or CSV, so memory use does not grow
+ * with the file. Rows are validated and written to a staging copy of the content
+ * database through one compiled INSERT, committed in chunks. When the whole bank
+ * has been read the staging file is swapped in with
+ * {@link ContentDatabase#replaceContent}; a failed import leaves the live content
+ * untouched.
+ *
+ * JSON: an array of objects with "topic_id", "question_text", "options" (two or
+ * more strings) and "correct_option" (0-based index into options).
+ * CSV: a header line followed by topic_id,question_text,option,option[,option...],
+ * correct_option, quoted per RFC 4180; rows may have different option counts.
+ */
+public class QuestionBankImporter {
+    private static final String TAG = "QuestionBankImporter";
+
+    private static final int CHUNK_SIZE = 5_000;
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final int MIN_OPTIONS = 2;
+
+    private static final String INSERT_QUESTION = "INSERT INTO assessment_questions" +
+            "(topic_id, question_text, correct_option) VALUES (?, ?, ?)";
+    private static final String INSERT_OPTION = "INSERT INTO question_options" +
+            "(question_id, position, option_text) VALUES (?, ?, ?)";
+
+    private final ContentDatabase contentDb;
+    private boolean replaceExisting;
+
+    public QuestionBankImporter(ContentDatabase contentDb) {
+        this.contentDb = contentDb;
+    }
+
+    /**
+     * When set, questions already in the content database are removed before the
+     * bank is loaded. Off by default, so imports add to the existing questions.
+     */
+    public QuestionBankImporter setReplaceExisting(boolean replaceExisting) {
+        this.replaceExisting = replaceExisting;
+        return this;
+    }
+
+    public static class Result {
+        private final int imported;
+        private final int rejected;
+        private final List<String> errors;
+        private final long elapsedNanos;
+
+        Result(int imported, int rejected, List<String> errors, long elapsedNanos) {
+            this.imported = imported;
+            this.rejected = rejected;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getImported() {
+            return imported;
+        }
+
+        public int getRejected() {
+            return rejected;
+        }
+
+        /** The first validation errors, one per rejected row, prefixed with the row number. */
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : imported * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d imported, %d rejected in %d ms (%.0f rows/s)",
+                    imported, rejected, getElapsedMillis(), getRowsPerSecond());
+        }
+    }
+
+    public Result importJson(InputStream in) throws IOException {
+        return run(new JsonSource(in));
+    }
+
+    public Result importCsv(InputStream in) throws IOException {
+        return run(new CsvSource(in));
+    }
+
+    // One parsed row; reused across the whole import
+    private static class Row {
+        int number;
+        long topicId;
+        String questionText;
+        final List<String> options = new ArrayList<>();
+        long correctOption;
+        // Set by the source when the record itself is malformed
+        String parseError;
+
+        void clear() {
+            parseError = null;
+            topicId = 0;
+            questionText = null;
+            options.clear();
+            correctOption = -1;
+        }
+    }
+
+    private interface RowSource {
+        /** Fills {@code row} with the next record, or returns false at the end of input. */
+        boolean next(Row row) throws IOException;
+
+        void close() throws IOException;
+    }
+
+    private Result run(RowSource source) throws IOException {
+        long start = System.nanoTime();
+        File live = contentDb.getInstalledFile();
+        File staging = new File(live.getPath() + ".import");
+
+        int imported = 0;
+        int rejected = 0;
+        List<String> errors = new ArrayList<>();
+        try {
+            copyFile(live, staging);
+
+            SQLiteDatabase db = SQLiteDatabase.openDatabase(staging.getPath(), null,
+                    SQLiteDatabase.OPEN_READWRITE | SQLiteDatabase.NO_LOCALIZED_COLLATORS);
+            try {
+                // Nothing reads the staging file until it is complete, and a crash just
+                // means the import is run again, so skip the rollback journal and fsyncs
+                PragmaProfile.pragma(db, "PRAGMA journal_mode = OFF");
+                PragmaProfile.pragma(db, "PRAGMA synchronous = OFF");
+
+                Set<Long> topicIds = loadTopicIds(db);
+                if (replaceExisting) {
+                    db.execSQL("DELETE FROM question_options");
+                    db.execSQL("DELETE FROM assessment_questions");
+                }
+
+                SQLiteStatement insert = db.compileStatement(INSERT_QUESTION);
+                SQLiteStatement insertOption = db.compileStatement(INSERT_OPTION);
+                Row row = new Row();
+                try {
+                    int inChunk = 0;
+                    db.beginTransaction();
+                    try {
+                        while (true) {
+                            row.clear();
+                            if (!source.next(row)) {
+                                break;
+                            }
+                            String error = validate(row, topicIds);
+                            if (error != null) {
+                                rejected++;
+                                if (errors.size() < MAX_REPORTED_ERRORS) {
+                                    errors.add("Row " + row.number + ": " + error);
+                                }
+                                continue;
+                            }
+
+                            insert.bindLong(1, row.topicId);
+                            insert.bindString(2, row.questionText);
+                            insert.bindLong(3, row.correctOption);
+                            long questionId = insert.executeInsert();
+                            insertOption.bindLong(1, questionId);
+                            for (int i = 0; i < row.options.size(); i++) {
+                                insertOption.bindLong(2, i);
+                                insertOption.bindString(3, row.options.get(i));
+                                insertOption.executeInsert();
+                            }
+                            imported++;
+
+                            if (++inChunk == CHUNK_SIZE) {
+                                db.setTransactionSuccessful();
+                                db.endTransaction();
+                                db.beginTransaction();
+                                inChunk = 0;
+                            }
+                        }
+                        db.setTransactionSuccessful();
+                    } finally {
+                        db.endTransaction();
+                    }
+                } finally {
+                    insert.close();
+                    insertOption.close();
+                }
+
+                // The search triggers indexed every row; merge the many small FTS
+                // segments they left behind, and refresh planner statistics
+                db.execSQL("INSERT INTO content_search(content_search) VALUES ('optimize')");
+                db.execSQL("ANALYZE");
+            } finally {
+                db.close();
+            }
+
+            contentDb.replaceContent(staging);
+        } finally {
+            source.close();
+            staging.delete();
+        }
+
+        Result result = new Result(imported, rejected, errors, System.nanoTime() - start);
+        Log.i(TAG, "Question bank import: " + result);
+        return result;
+    }
+
+    private static String validate(Row row, Set<Long> topicIds) {
+        if (row.parseError != null) {
+            return row.parseError;
+        }
+        if (!topicIds.contains(row.topicId)) {
+            return "unknown topic_id " + row.topicId;
+        }
+        if (row.questionText == null || row.questionText.trim().isEmpty()) {
+            return "question_text is empty";
+        }
+        if (row.options.size() < MIN_OPTIONS) {
+            return "expected at least " + MIN_OPTIONS + " options, found " + row.options.size();
+        }
+        for (int i = 0; i < row.options.size(); i++) {
+            String option = row.options.get(i);
+            if (option == null || option.trim().isEmpty()) {
+                return "option " + (i + 1) + " is empty";
+            }
+        }
+        if (row.correctOption < 0 || row.correctOption >= row.options.size()) {
+            return "correct_option " + row.correctOption + " is not between 0 and " + (row.options.size() - 1);
+        }
+        return null;
+    }
+
+    private static Set<Long> loadTopicIds(SQLiteDatabase db) {
+        Set<Long> ids = new HashSet<>();
+        Cursor cursor = db.rawQuery("SELECT id FROM topics", null);
+        try {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getLong(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return ids;
+    }
+
+    private static void copyFile(File from, File to) throws IOException {
+        try (FileChannel in = new FileInputStream(from).getChannel();
+             FileChannel out = new FileOutputStream(to).getChannel()) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+        }
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /*
+     * JSON: [ { "topic_id": 1, "question_text": "...", "options": ["a", "b", ...], "correct_option": 0 }, ... ]
+     */
+    private static class JsonSource implements RowSource {
+        private final JsonReader reader;
+        private int rowNumber;
+
+        JsonSource(InputStream in) throws IOException {
+            reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            reader.beginArray();
+        }
+
+        @Override
+        public boolean next(Row row) throws IOException {
+            if (!reader.hasNext()) {
+                reader.endArray();
+                return false;
+            }
+            row.number = ++rowNumber;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "topic_id":
+                        row.topicId = parseLong(reader.nextString());
+                        break;
+                    case "question_text":
+                        row.questionText = reader.nextString();
+                        break;
+                    case "options":
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            if (reader.peek() == JsonToken.NULL) {
+                                reader.nextNull();
+                                row.options.add(null);
+                            } else {
+                                row.options.add(reader.nextString());
+                            }
+                        }
+                        reader.endArray();
+                        break;
+                    case "correct_option":
+                        row.correctOption = parseLong(reader.nextString());
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /*
+     * CSV with a header line; fields may be quoted, with "" for a literal quote and
+     * line breaks allowed inside quotes. The options are every field between
+     * question_text and the last field, correct_option.
+     */
+    private static class CsvSource implements RowSource {
+        private static final int MIN_COLUMNS = 3 + MIN_OPTIONS;
+
+        private final Reader reader;
+        private final List<String> fields = new ArrayList<>();
+        private final StringBuilder field = new StringBuilder();
+        private int rowNumber;
+
+        CsvSource(InputStream in) throws IOException {
+            reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+            // Skip the header
+            readRecord();
+        }
+
+        @Override
+        public boolean next(Row row) throws IOException {
+            int count;
+            do {
+                count = readRecord();
+                if (count < 0) {
+                    return false;
+                }
+                // Ignore blank lines
+            } while (count == 1 && fields.get(0).isEmpty());
+
+            row.number = ++rowNumber;
+            if (count < MIN_COLUMNS) {
+                row.parseError = "expected at least " + MIN_COLUMNS + " fields, found " + count;
+                return true;
+            }
+            row.topicId = parseLong(fields.get(0));
+            row.questionText = fields.get(1);
+            row.options.addAll(fields.subList(2, count - 1));
+            row.correctOption = parseLong(fields.get(count - 1));
+            return true;
+        }
+
+        /** Reads one record into {@link #fields}; returns the field count, or -1 at end of input. */
+        private int readRecord() throws IOException {
+            int count = 0;
+            fields.clear();
+            boolean quoted = false;
+            boolean any = false;
+            field.setLength(0);
+
+            int c;
+            while ((c = reader.read()) != -1) {
+                any = true;
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        if (reader.read() == '"') {
+                            field.append('"');
+                        } else {
+                            reader.reset();
+                            quoted = false;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    count = addField(count);
+                } else if (c == '\n') {
+                    return addField(count);
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+            }
+            return any ? addField(count) : -1;
+        }
+
+        private int addField(int count) {
+            fields.add(field.toString());
+            field.setLength(0);
+            return count + 1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.personalizedlearning.db;
+
+/**
+ * Model class representing one full-text search hit in a study material or question
+ */
+public class SearchResult {
+    public static final String KIND_MATERIAL = "material";
+    public static final String KIND_QUESTION = "question";
+
+    private final String kind;
+    private final int topicId;
+    private final String topicTitle;
+    private final String snippet;
+    private final double score;
+
+    public SearchResult(String kind, int topicId, String topicTitle, String snippet, double score) {
+        this.kind = kind;
+        this.topicId = topicId;
+        this.topicTitle = topicTitle;
+        this.snippet = snippet;
+        this.score = score;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public int getTopicId() {
+        return topicId;
+    }
+
+    public String getTopicTitle() {
+        return topicTitle;
+    }
+
+    /**
+     * Matching excerpt; matched terms are wrapped in {@link ContentDatabase#SNIPPET_START}
+     * and {@link ContentDatabase#SNIPPET_END}.
+     */
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public double getScore() {
+        return score;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.personalizedlearning.db;
+
+/**
+ * Model class representing the outcome of checking a user's credentials
+ */
+public class SignInResult {
+    public enum Status { SIGNED_IN, NO_ACCOUNT, WRONG_PASSWORD }
+
+    private final Status status;
+    private final UserProfile user;
+
+    public SignInResult(Status status, UserProfile user) {
+        this.status = status;
+        this.user = user;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /** The signed-in user, or null unless the status is {@link Status#SIGNED_IN} */
+    public UserProfile getUser() {
+        return user;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.personalizedlearning.db;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Compiled statements for the hot single-value queries, kept open between calls.
+ *
+ * A SQLiteStatement holds its own bindings, so one statement cannot serve two
+ * threads at once: each call takes a statement for its SQL out of the pool, or
+ * compiles one if none is idle, and puts it back afterwards. At most
+ * {@link #MAX_IDLE_PER_SQL} statements per SQL stay open, enough for the
+ * repository's read and write threads.
+ */
+final class StatementPool {
+    static final int MAX_IDLE_PER_SQL = 4;
+
+    private final Supplier<SQLiteDatabase> database;
+    private final Map<String, ArrayDeque<SQLiteStatement>> idle = new HashMap<>();
+
+    StatementPool(Supplier<SQLiteDatabase> database) {
+        this.database = database;
+    }
+
+    /**
+     * Runs {@code sql}, a query returning one row with one integer column, with
+     * {@code args} bound in order.
+     */
+    long simpleQueryForLong(String sql, long... args) {
+        SQLiteStatement statement = acquire(sql);
+        try {
+            for (int i = 0; i < args.length; i++) {
+                statement.bindLong(i + 1, args[i]);
+            }
+            return statement.simpleQueryForLong();
+        } finally {
+            release(sql, statement);
+        }
+    }
+
+    private SQLiteStatement acquire(String sql) {
+        synchronized (this) {
+            ArrayDeque<SQLiteStatement> statements = idle.get(sql);
+            if (statements != null && !statements.isEmpty()) {
+                return statements.pop();
+            }
+        }
+        return database.get().compileStatement(sql);
+    }
+
+    private void release(String sql, SQLiteStatement statement) {
+        statement.clearBindings();
+        synchronized (this) {
+            ArrayDeque<SQLiteStatement> statements = idle.get(sql);
+            if (statements == null) {
+                statements = new ArrayDeque<>();
+                idle.put(sql, statements);
+            }
+            if (statements.size() < MAX_IDLE_PER_SQL) {
+                statements.push(statement);
+                return;
+            }
+        }
+        statement.close();
+    }
+
+    /** Closes every idle statement; call before the database they belong to is closed. */
+    synchronized void clear() {
+        for (ArrayDeque<SQLiteStatement> statements : idle.values()) {
+            for (SQLiteStatement statement : statements) {
+                statement.close();
+            }
+        }
+        idle.clear();
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.personalizedlearning.db;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Re-encodes large plain study material bodies of a content database file with a
+ * {@link ContentCodec}, then vacuums the file so the freed pages are given back.
+ *
+ * Run on a content file before it is put into service, since no connection may
+ * have it open. Bodies under {@link #MIN_ENCODED_BYTES}, and bodies the codec
+ * cannot shrink by at least a fifth, stay plain TEXT: they cost little to store
+ * and reading them skips the decode. The search index keeps the plain text of
+ * every body (see content.sql), so search and snippets are unaffected.
+ */
+final class StudyMaterialCompressor {
+    private static final String TAG = "StudyMaterialCompressor";
+
+    // Sized for sections, not whole lessons: Deflate shrinks a section of a kilobyte
+    // by about 40%, while shorter ones save too few bytes to pay for the decode
+    static final int MIN_ENCODED_BYTES = 1024;
+    private static final double MAX_ENCODED_RATIO = 0.8;
+
+    // Bodies are read a few at a time; a section runs to a few kilobytes
+    private static final int BATCH_SIZE = 64;
+
+    private StudyMaterialCompressor() {
+    }
+
+    /**
+     * Encodes the large plain bodies in {@code file} with {@code codec}.
+     *
+     * @return the number of bodies encoded
+     */
+    static int compress(File file, ContentCodec codec) {
+        long start = System.nanoTime();
+        long sizeBefore = file.length();
+        int encoded = 0;
+
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(file.getPath(), null,
+                SQLiteDatabase.OPEN_READWRITE | SQLiteDatabase.NO_LOCALIZED_COLLATORS);
+        try {
+            SQLiteStatement update = db.compileStatement(
+                    "UPDATE study_materials SET content = ?, encoding = ? WHERE id = ?");
+            db.beginTransaction();
+            try {
+                long afterId = 0;
+                while (true) {
+                    int read = 0;
+                    Cursor cursor = db.rawQuery("SELECT id, content FROM study_materials " +
+                                    "WHERE id > ? AND encoding = " + ContentCodec.PLAIN + " " +
+                                    // A character takes at most 4 bytes in UTF-8
+                                    "AND length(content) >= " + MIN_ENCODED_BYTES / 4 + " " +
+                                    "ORDER BY id LIMIT " + BATCH_SIZE,
+                            new String[] { String.valueOf(afterId) });
+                    try {
+                        while (cursor.moveToNext()) {
+                            read++;
+                            afterId = cursor.getLong(0);
+                            String text = cursor.getString(1);
+                            int plainBytes = text.getBytes(StandardCharsets.UTF_8).length;
+                            if (plainBytes < MIN_ENCODED_BYTES) {
+                                continue;
+                            }
+                            byte[] data = codec.encode(text);
+                            if (data.length > plainBytes * MAX_ENCODED_RATIO) {
+                                continue;
+                            }
+                            update.bindBlob(1, data);
+                            update.bindLong(2, codec.getId());
+                            update.bindLong(3, afterId);
+                            update.executeUpdateDelete();
+                            encoded++;
+                        }
+                    } finally {
+                        cursor.close();
+                    }
+                    if (read < BATCH_SIZE) {
+                        break;
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                update.close();
+            }
+
+            if (encoded > 0) {
+                db.execSQL("VACUUM");
+            }
+        } finally {
+            db.close();
+        }
+
+        Log.i(TAG, "Encoded " + encoded + " study materials, " + sizeBefore / 1024 + " KB -> "
+                + file.length() / 1024 + " KB in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return encoded;
+    }
+}
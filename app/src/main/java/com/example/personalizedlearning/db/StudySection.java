@@ -0,0 +1,23 @@
+package com.example.personalizedlearning.db;
+
+/**
+ * Model class representing one section of a topic's study material
+ */
+public class StudySection {
+    private final int position;
+    private final String text;
+
+    public StudySection(int position, String text) {
+        this.position = position;
+        this.text = text;
+    }
+
+    /** Order of the section within its topic; pass the last one to page further */
+    public int getPosition() {
+        return position;
+    }
+
+    public String getText() {
+        return text;
+    }
+}
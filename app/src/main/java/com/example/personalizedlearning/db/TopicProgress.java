@@ -0,0 +1,34 @@
+package com.example.personalizedlearning.db;
+
+/**
+ * Model class representing one user's completion and score for a topic
+ */
+public class TopicProgress {
+    private final int topicId;
+    private final String title;
+    private final boolean completed;
+    private final int score;
+
+    public TopicProgress(int topicId, String title, boolean completed, int score) {
+        this.topicId = topicId;
+        this.title = title;
+        this.completed = completed;
+        this.score = score;
+    }
+
+    public int getTopicId() {
+        return topicId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public int getScore() {
+        return score;
+    }
+}
@@ -15,7 +15,7 @@ import androidx.fragment.app.Fragment;
 import androidx.navigation.Navigation;
 import com.example.personalizedlearning.R;
 import com.example.personalizedlearning.db.AssessmentQuestion;
-import com.example.personalizedlearning.db.DatabaseHelper;
+import com.example.personalizedlearning.db.LearningRepository;
 import com.example.personalizedlearning.utils.LearningProgressManager;
 import com.example.personalizedlearning.utils.ProfileManager;
 
@@ -37,7 +37,6 @@ public class AssessmentFragment extends Fragment {
     private int currentQuestionIndex = 0;
     private int score = 0;
     private List<AssessmentQuestion> questions = new ArrayList<>();
-    private DatabaseHelper dbHelper;
 
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
@@ -46,9 +45,6 @@ public class AssessmentFragment extends Fragment {
             topicId = getArguments().getInt("topic_id", 0);
             topicTitle = getArguments().getString("topic_title", "Assessment");
         }
-        
-        // Initialize database helper
-        dbHelper = DatabaseHelper.getInstance(requireContext());
     }
 
     @Override
@@ -68,44 +64,47 @@ public class AssessmentFragment extends Fragment {
         // Set title
         assessmentTitleView.setText(topicTitle + " Assessment");
         
-        // Check if user is authenticated
-        boolean isAuthenticated = ProfileManager.getInstance(requireContext()).isProfileCreated();
-        
-        if (!isAuthenticated) {
-            // Show message that profile is required
-            profileRequiredMessage.setVisibility(View.VISIBLE);
-            assessmentContent.setVisibility(View.GONE);
-            
-            // Set up sign in button
-            Button signInButton = root.findViewById(R.id.sign_in_button);
-            signInButton.setOnClickListener(v -> 
-                    Navigation.findNavController(v).navigate(R.id.navigation_sign_in));
-        } else {
-            // Show assessment content
-            profileRequiredMessage.setVisibility(View.GONE);
-            assessmentContent.setVisibility(View.VISIBLE);
-            
-            // Reset score and current question
-            currentQuestionIndex = 0;
-            score = 0;
-            
-            // Prepare assessment questions for this topic
-            prepareAssessment(topicId);
+        // Check if user is authenticated, once the session is known
+        ProfileManager profileManager = ProfileManager.getInstance(requireContext());
+        profileManager.whenLoaded(() -> {
+            // Skipped if this view has been destroyed or replaced meanwhile
+            if (getView() != root) return;
+            boolean isAuthenticated = profileManager.isProfileCreated();
             
-            // Display first question if available
-            if (!questions.isEmpty()) {
-                displayQuestion(0);
+            if (!isAuthenticated) {
+                // Show message that profile is required
+                profileRequiredMessage.setVisibility(View.VISIBLE);
+                assessmentContent.setVisibility(View.GONE);
+                
+                // Set up sign in button
+                Button signInButton = root.findViewById(R.id.sign_in_button);
+                signInButton.setOnClickListener(v -> 
+                        Navigation.findNavController(v).navigate(R.id.navigation_sign_in));
+            } else {
+                // Show assessment content
+                profileRequiredMessage.setVisibility(View.GONE);
+                assessmentContent.setVisibility(View.VISIBLE);
+                
+                // Reset score and current question
+                currentQuestionIndex = 0;
+                score = 0;
+                
+                // Prepare assessment questions for this topic
+                prepareAssessment(topicId);
+                
+                // Set up buttons
+                nextButton.setOnClickListener(v -> handleNextQuestion());
+                finishButton.setOnClickListener(v -> finishAssessment());
             }
-            
-            // Set up buttons
-            nextButton.setOnClickListener(v -> handleNextQuestion());
-            finishButton.setOnClickListener(v -> finishAssessment());
-        }
+        });
         
         return root;
     }
     
     private void handleNextQuestion() {
+        // Questions are still loading
+        if (questions.isEmpty()) return;
+        
         // Save answer for current question
         int selectedOptionId = optionsRadioGroup.getCheckedRadioButtonId();
         if (selectedOptionId == -1) {
@@ -169,6 +168,8 @@ public class AssessmentFragment extends Fragment {
     }
     
     private void finishAssessment() {
+        if (questions.isEmpty()) return;
+        
         // Handle the last question if needed
         if (currentQuestionIndex < questions.size()) {
             handleNextQuestion();
@@ -178,24 +179,10 @@ public class AssessmentFragment extends Fragment {
         // Calculate percentage score
         int percentage = (int) (((float) score / questions.size()) * 100);
         
-        // Save assessment results
+        // Save assessment results; written to user_progress for the signed-in user
         LearningProgressManager.getInstance(requireContext())
                 .saveAssessmentScore(topicId, percentage);
         
-        try {
-            // Also save to the database if there is a user profile
-            ProfileManager profileManager = ProfileManager.getInstance(requireContext());
-            if (profileManager.isProfileCreated()) {
-                // In a real app, you would get the user ID from the database
-                // Here we'll use 1 as a dummy user ID
-                int userId = 1;
-                dbHelper.markTopicCompleted(userId, topicId, percentage);
-            }
-        } catch (Exception e) {
-            Toast.makeText(requireContext(), "Error saving progress: " + e.getMessage(), 
-                    Toast.LENGTH_SHORT).show();
-        }
-        
         // Show results dialog
         View resultView = getLayoutInflater().inflate(R.layout.dialog_assessment_result, null);
         TextView scoreTextView = resultView.findViewById(R.id.score_text);
@@ -231,22 +218,35 @@ public class AssessmentFragment extends Fragment {
     }
     
     private void prepareAssessment(int topicId) {
-        try {
-            // Try to get questions from database
-            List<AssessmentQuestion> dbQuestions = dbHelper.getQuestionsForTopic(topicId);
-            
-            if (dbQuestions != null && !dbQuestions.isEmpty()) {
-                questions = dbQuestions;
-            } else {
-                // Fallback to hardcoded questions if database is empty
-                createFallbackQuestions(topicId);
-            }
-        } catch (Exception e) {
-            // Handle error and fallback to hardcoded questions
-            Toast.makeText(requireContext(), "Error loading questions: " + e.getMessage(), 
-                    Toast.LENGTH_SHORT).show();
-            createFallbackQuestions(topicId);
-        }
+        // Load questions from database in the background
+        LearningRepository.getInstance(requireContext()).loadQuestions(getViewLifecycleOwner(), topicId,
+                new LearningRepository.Callback<List<AssessmentQuestion>>() {
+                    @Override
+                    public void onResult(List<AssessmentQuestion> dbQuestions) {
+                        if (dbQuestions != null && !dbQuestions.isEmpty()) {
+                            questions = dbQuestions;
+                        } else {
+                            // Fallback to hardcoded questions if database is empty
+                            createFallbackQuestions(topicId);
+                        }
+                        
+                        // Display first question if available
+                        if (!questions.isEmpty()) {
+                            displayQuestion(0);
+                        }
+                    }
+                    
+                    @Override
+                    public void onError(Exception e) {
+                        // Handle error and fallback to hardcoded questions
+                        Toast.makeText(requireContext(), "Error loading questions: " + e.getMessage(), 
+                                Toast.LENGTH_SHORT).show();
+                        createFallbackQuestions(topicId);
+                        if (!questions.isEmpty()) {
+                            displayQuestion(0);
+                        }
+                    }
+                });
     }
     
     // Fallback method for hardcoded questions in case database is empty
@@ -6,6 +6,7 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
 import android.widget.EditText;
+import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
@@ -14,11 +15,11 @@ import androidx.fragment.app.Fragment;
 import androidx.navigation.NavController;
 import androidx.navigation.fragment.NavHostFragment;
 import com.example.personalizedlearning.R;
-import com.example.personalizedlearning.db.DatabaseHelper;
+import com.example.personalizedlearning.db.LearningRepository;
+import com.example.personalizedlearning.db.SignInResult;
 import com.example.personalizedlearning.db.UserProfile;
+import com.example.personalizedlearning.utils.LearningProgressManager;
 import com.example.personalizedlearning.utils.ProfileManager;
-import java.security.MessageDigest;
-import java.nio.charset.StandardCharsets;
 
 public class SignInFragment extends Fragment {
 
@@ -27,8 +28,8 @@ public class SignInFragment extends Fragment {
     private Button signInButton;
     private Button signUpButton;
     private TextView signUpLink;
+    private ProgressBar progressBar;
     private NavController navController;
-    private DatabaseHelper dbHelper;
     
     // Store topic information for redirecting after sign in
     private int topicId = 0;
@@ -44,9 +45,6 @@ public class SignInFragment extends Fragment {
             topicTitle = getArguments().getString("topic_title", "");
             shouldRedirect = topicId > 0 && !topicTitle.isEmpty();
         }
-        
-        // Initialize database helper
-        dbHelper = DatabaseHelper.getInstance(requireContext());
     }
 
     @Override
@@ -64,22 +62,18 @@ public class SignInFragment extends Fragment {
             signInButton = root.findViewById(R.id.sign_in_button);
             signUpButton = root.findViewById(R.id.sign_up_button);
             signUpLink = root.findViewById(R.id.sign_up_link);
+            progressBar = root.findViewById(R.id.sign_in_progress);
             
-            // Auto-redirect if already signed in
-            boolean isProfileCreated = false;
-            try {
-                isProfileCreated = ProfileManager.getInstance(requireContext()).isProfileCreated();
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-            
-            if (isProfileCreated) {
+            // Auto-redirect if already signed in, once the session is known
+            ProfileManager profileManager = ProfileManager.getInstance(requireContext());
+            profileManager.whenLoaded(() -> {
+                if (getView() == null || !profileManager.isProfileCreated()) return;
                 if (shouldRedirect) {
                     redirectToStudyMaterial();
                 } else {
                     navigateToHome();
                 }
-            }
+            });
             
             signInButton.setOnClickListener(v -> attemptSignIn());
             
@@ -119,41 +113,63 @@ public class SignInFragment extends Fragment {
                 return;
             }
             
-            // Hash the password to compare with stored hash
-            String passwordHash = hashPassword(password);
-            
-            // Check if user exists in database
-            UserProfile userProfile = dbHelper.getUserByEmail(email);
-            
-            if (userProfile != null && userProfile.getPasswordHash().equals(passwordHash)) {
-                // Valid user found, update SharedPreferences for backward compatibility
-                ProfileManager profileManager = ProfileManager.getInstance(requireContext());
-                profileManager.saveProfile(userProfile.getUsername(), email, userProfile.getInterests());
-                
-                Toast.makeText(requireContext(), "Signed in successfully!", Toast.LENGTH_SHORT).show();
-                
-                // Navigate based on where the user came from
-                if (shouldRedirect) {
-                    redirectToStudyMaterial();
-                } else {
-                    navigateToHome();
-                }
-            } else {
-                if (userProfile == null) {
-                    // User doesn't exist - show signup required dialog
-                    showSignUpRequiredDialog();
-                } else {
-                    // User exists but password is incorrect
-                    Toast.makeText(requireContext(), "Invalid email or password", Toast.LENGTH_SHORT).show();
-                }
-            }
+            // Password hashing is deliberately slow; it runs in the background
+            setBusy(true);
+            LearningRepository.getInstance(requireContext()).signIn(getViewLifecycleOwner(), email, password,
+                    new LearningRepository.Callback<SignInResult>() {
+                        @Override
+                        public void onResult(SignInResult result) {
+                            setBusy(false);
+                            onSignInChecked(result, email);
+                        }
+                        
+                        @Override
+                        public void onError(Exception e) {
+                            setBusy(false);
+                            Toast.makeText(requireContext(), "Sign-in error: " + e.getMessage(), 
+                                    Toast.LENGTH_SHORT).show();
+                            e.printStackTrace();
+                        }
+                    });
         } catch (Exception e) {
+            setBusy(false);
             Toast.makeText(requireContext(), "Sign-in error: " + e.getMessage(), 
                     Toast.LENGTH_SHORT).show();
             e.printStackTrace();
         }
     }
     
+    private void setBusy(boolean busy) {
+        signInButton.setEnabled(!busy);
+        signUpButton.setEnabled(!busy);
+        progressBar.setVisibility(busy ? View.VISIBLE : View.GONE);
+    }
+    
+    private void onSignInChecked(SignInResult result, String email) {
+        if (result.getStatus() == SignInResult.Status.SIGNED_IN) {
+            // Valid user found, start the session
+            UserProfile userProfile = result.getUser();
+            ProfileManager profileManager = ProfileManager.getInstance(requireContext());
+            profileManager.saveProfile(userProfile.getUsername(), email, userProfile.getInterests());
+            LearningProgressManager.getInstance(requireContext()).preload();
+            
+            Toast.makeText(requireContext(), "Signed in successfully!", Toast.LENGTH_SHORT).show();
+            
+            // Navigate based on where the user came from
+            if (shouldRedirect) {
+                redirectToStudyMaterial();
+            } else {
+                navigateToHome();
+            }
+        } else if (result.getStatus() == SignInResult.Status.NO_ACCOUNT) {
+            // User doesn't exist - show signup required dialog
+            showSignUpRequiredDialog();
+        } else {
+            // User exists but password is incorrect
+            Toast.makeText(requireContext(), "Invalid email or password", Toast.LENGTH_SHORT).show();
+        }
+    }
+    
     private void showSignUpRequiredDialog() {
         AlertDialog.Builder builder = new AlertDialog.Builder(requireContext());
         builder.setTitle("Account Not Found");
@@ -183,29 +199,6 @@ public class SignInFragment extends Fragment {
         dialog.show();
     }
     
-    // Simple password hashing function - in a real app, use a proper hashing library
-    private String hashPassword(String password) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(password.getBytes(StandardCharsets.UTF_8));
-            
-            // Convert to hex string
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
-            }
-            return hexString.toString();
-        } catch (Exception e) {
-            e.printStackTrace();
-            // Fallback to plain text if hashing fails (not secure, just to avoid crashes)
-            return password;
-        }
-    }
-    
     private void redirectToStudyMaterial() {
         Bundle args = new Bundle();
         args.putInt("topic_id", topicId);
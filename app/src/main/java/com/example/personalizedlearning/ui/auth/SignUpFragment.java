@@ -6,6 +6,7 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
 import android.widget.EditText;
+import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
@@ -13,10 +14,10 @@ import androidx.fragment.app.Fragment;
 import androidx.navigation.NavController;
 import androidx.navigation.fragment.NavHostFragment;
 import com.example.personalizedlearning.R;
-import com.example.personalizedlearning.db.DatabaseHelper;
+import com.example.personalizedlearning.db.LearningRepository;
+import com.example.personalizedlearning.db.UserProfile;
+import com.example.personalizedlearning.utils.LearningProgressManager;
 import com.example.personalizedlearning.utils.ProfileManager;
-import java.security.MessageDigest;
-import java.nio.charset.StandardCharsets;
 
 public class SignUpFragment extends Fragment {
 
@@ -26,8 +27,8 @@ public class SignUpFragment extends Fragment {
     private EditText confirmPasswordEditText;
     private Button signUpButton;
     private TextView signInLink;
+    private ProgressBar progressBar;
     private NavController navController;
-    private DatabaseHelper dbHelper;
     
     // Store topic information for redirecting after sign up
     private int topicId = 0;
@@ -49,9 +50,6 @@ public class SignUpFragment extends Fragment {
             // Check if we have an email to pre-fill
             prefillEmail = getArguments().getString("prefill_email", "");
         }
-        
-        // Initialize database helper
-        dbHelper = DatabaseHelper.getInstance(requireContext());
     }
 
     @Override
@@ -70,6 +68,7 @@ public class SignUpFragment extends Fragment {
             confirmPasswordEditText = root.findViewById(R.id.confirm_password_edit_text);
             signUpButton = root.findViewById(R.id.sign_up_button);
             signInLink = root.findViewById(R.id.sign_in_link);
+            progressBar = root.findViewById(R.id.sign_up_progress);
             
             // Pre-fill email if available
             if (!prefillEmail.isEmpty()) {
@@ -133,66 +132,79 @@ public class SignUpFragment extends Fragment {
                 return;
             }
             
-            // Check if user already exists
-            if (dbHelper.getUserByEmail(email) != null) {
-                Toast.makeText(requireContext(), "An account with this email already exists. Please sign in instead.", 
-                        Toast.LENGTH_LONG).show();
-                return;
-            }
-            
-            // Hash the password - in a real app, use a proper hashing library with salt
-            String passwordHash = hashPassword(password);
-            
-            // Create user profile in database
-            long userId = dbHelper.createUserProfile(name, email, passwordHash, "");
-            
-            if (userId > 0) {
-                // Also save to SharedPreferences for backward compatibility
-                ProfileManager profileManager = ProfileManager.getInstance(requireContext());
-                profileManager.saveProfile(name, email, "");
-                
-                Toast.makeText(requireContext(), "Account created successfully!", Toast.LENGTH_SHORT).show();
+            // Check if user already exists, then hash the password and create the
+            // profile in the background
+            setBusy(true);
+            LearningRepository repository = LearningRepository.getInstance(requireContext());
+            repository.loadUserByEmail(getViewLifecycleOwner(), email, new LearningRepository.Callback<UserProfile>() {
+                @Override
+                public void onResult(UserProfile existing) {
+                    if (existing != null) {
+                        setBusy(false);
+                        Toast.makeText(requireContext(), "An account with this email already exists. Please sign in instead.", 
+                                Toast.LENGTH_LONG).show();
+                        return;
+                    }
+                    
+                    // Create user profile in database
+                    repository.createAccount(getViewLifecycleOwner(), name, email, password, "",
+                            new LearningRepository.Callback<Long>() {
+                                @Override
+                                public void onResult(Long userId) {
+                                    setBusy(false);
+                                    onUserCreated(userId, name, email);
+                                }
+                                
+                                @Override
+                                public void onError(Exception e) {
+                                    showSignUpError(e);
+                                }
+                            });
+                }
                 
-                // Navigate based on where the user came from
-                if (shouldRedirect) {
-                    redirectToStudyMaterial();
-                } else {
-                    navigateToHome();
+                @Override
+                public void onError(Exception e) {
+                    showSignUpError(e);
                 }
-            } else {
-                Toast.makeText(requireContext(), "Failed to create account. Email may already exist.", 
-                        Toast.LENGTH_SHORT).show();
-            }
+            });
         } catch (Exception e) {
-            Toast.makeText(requireContext(), "Sign-up error: " + e.getMessage(),
-                    Toast.LENGTH_SHORT).show();
-            e.printStackTrace();
+            showSignUpError(e);
         }
     }
     
-    // Simple password hashing function - in a real app, use a proper hashing library
-    private String hashPassword(String password) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(password.getBytes(StandardCharsets.UTF_8));
+    private void setBusy(boolean busy) {
+        signUpButton.setEnabled(!busy);
+        progressBar.setVisibility(busy ? View.VISIBLE : View.GONE);
+    }
+    
+    private void onUserCreated(long userId, String name, String email) {
+        if (userId > 0) {
+            // Sign the new user in and start loading their progress
+            ProfileManager profileManager = ProfileManager.getInstance(requireContext());
+            profileManager.saveProfile(name, email, "");
+            LearningProgressManager.getInstance(requireContext()).preload();
             
-            // Convert to hex string
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
+            Toast.makeText(requireContext(), "Account created successfully!", Toast.LENGTH_SHORT).show();
+            
+            // Navigate based on where the user came from
+            if (shouldRedirect) {
+                redirectToStudyMaterial();
+            } else {
+                navigateToHome();
             }
-            return hexString.toString();
-        } catch (Exception e) {
-            e.printStackTrace();
-            // Fallback to plain text if hashing fails (not secure, just to avoid crashes)
-            return password;
+        } else {
+            Toast.makeText(requireContext(), "Failed to create account. Email may already exist.", 
+                    Toast.LENGTH_SHORT).show();
         }
     }
     
+    private void showSignUpError(Exception e) {
+        setBusy(false);
+        Toast.makeText(requireContext(), "Sign-up error: " + e.getMessage(),
+                Toast.LENGTH_SHORT).show();
+        e.printStackTrace();
+    }
+    
     private void redirectToStudyMaterial() {
         Bundle args = new Bundle();
         args.putInt("topic_id", topicId);
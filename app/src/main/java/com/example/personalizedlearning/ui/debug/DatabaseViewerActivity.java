@@ -1,23 +1,277 @@
 package com.example.personalizedlearning.ui.debug;
 
+import android.graphics.Typeface;
 import android.os.Bundle;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.TextUtils;
+import android.text.method.ScrollingMovementMethod;
+import android.text.style.StyleSpan;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.Button;
+import android.widget.Spinner;
 import android.widget.TextView;
+import android.widget.Toast;
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 import com.example.personalizedlearning.R;
+import com.example.personalizedlearning.db.ContentDatabase;
 import com.example.personalizedlearning.db.DatabaseHelper;
+import com.example.personalizedlearning.db.DatabaseInspector;
+import com.example.personalizedlearning.db.LearningRepository;
+import com.example.personalizedlearning.db.QueryTracer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 public class DatabaseViewerActivity extends AppCompatActivity {
 
+    private static final int PAGE_SIZE = 50;
+    private static final int PREFETCH_DISTANCE = 15;
+
+    private LearningRepository repository;
+    private Spinner tableSpinner;
+    private TextView headerTextView;
+    private TextView cacheStatsTextView;
+    private TextView queryStatsTextView;
+    private RowsAdapter rowsAdapter;
+
+    private DatabaseInspector.TableInfo currentTable;
+    private List<String> visibleColumns = new ArrayList<>();
+
+    // Keyset paging state for the current table
+    private LearningRepository.Request pageRequest;
+    private long lastRowid = DatabaseInspector.FIRST_PAGE;
+    private boolean loadingPage = false;
+    private boolean lastPageLoaded = false;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_database_viewer);
 
-        TextView databaseContents = findViewById(R.id.database_contents);
-        DatabaseHelper dbHelper = DatabaseHelper.getInstance(this);
-        
-        // Get and display database contents
-        String contents = dbHelper.getDatabaseContents();
-        databaseContents.setText(contents);
+        repository = LearningRepository.getInstance(this);
+        tableSpinner = findViewById(R.id.table_spinner);
+        headerTextView = findViewById(R.id.table_header);
+        cacheStatsTextView = findViewById(R.id.cache_stats);
+        queryStatsTextView = findViewById(R.id.query_stats);
+        queryStatsTextView.setMovementMethod(new ScrollingMovementMethod());
+        Button columnsButton = findViewById(R.id.columns_button);
+        Button exportButton = findViewById(R.id.export_button);
+
+        RecyclerView rowsRecyclerView = findViewById(R.id.table_rows);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        rowsRecyclerView.setLayoutManager(layoutManager);
+        rowsAdapter = new RowsAdapter();
+        rowsRecyclerView.setAdapter(rowsAdapter);
+        rowsRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (layoutManager.findLastVisibleItemPosition() >= rowsAdapter.getItemCount() - PREFETCH_DISTANCE) {
+                    loadNextPage();
+                }
+            }
+        });
+
+        columnsButton.setOnClickListener(v -> showColumnFilter());
+        exportButton.setOnClickListener(v -> exportCurrentTable());
+
+        // Table list with row counts
+        repository.loadTables(this, tables -> {
+            ArrayAdapter<DatabaseInspector.TableInfo> adapter = new ArrayAdapter<>(this,
+                    android.R.layout.simple_spinner_item, tables);
+            adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+            tableSpinner.setAdapter(adapter);
+        });
+        tableSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                currentTable = (DatabaseInspector.TableInfo) parent.getItemAtPosition(position);
+                visibleColumns = new ArrayList<>(currentTable.getColumns());
+                reloadRows();
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        cacheStatsTextView.setText(ContentDatabase.getInstance(this).getCache().getStats().toString());
+        showQueryStats();
+    }
+
+    private void showQueryStats() {
+        QueryTracer tracer = DatabaseHelper.getInstance(this).getQueryTracer();
+        StringBuilder text = new StringBuilder();
+        for (QueryTracer.MethodStats stats : tracer.getMethodStats()) {
+            text.append(stats).append('\n');
+        }
+        for (QueryTracer.SlowQuery slow : tracer.getSlowQueries()) {
+            text.append(slow).append('\n');
+        }
+        queryStatsTextView.setText(text.length() == 0 ? "No queries traced yet" : text.toString().trim());
+    }
+
+    private void reloadRows() {
+        if (pageRequest != null) {
+            pageRequest.cancel();
+        }
+        lastRowid = DatabaseInspector.FIRST_PAGE;
+        loadingPage = false;
+        lastPageLoaded = false;
+        headerTextView.setText(TextUtils.join("\t", visibleColumns));
+        rowsAdapter.clear();
+        loadNextPage();
+    }
+
+    private void loadNextPage() {
+        if (currentTable == null || loadingPage || lastPageLoaded) return;
+        loadingPage = true;
+
+        pageRequest = repository.loadTablePage(this, currentTable, visibleColumns, lastRowid, PAGE_SIZE,
+                new LearningRepository.Callback<DatabaseInspector.Page>() {
+                    @Override
+                    public void onResult(DatabaseInspector.Page page) {
+                        loadingPage = false;
+                        lastPageLoaded = page.isLast();
+                        lastRowid = page.getLastRowid();
+                        rowsAdapter.addRows(page.getRows());
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        loadingPage = false;
+                        lastPageLoaded = true;
+                        Toast.makeText(DatabaseViewerActivity.this,
+                                "Error reading table: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                    }
+                });
+    }
+
+    private void showColumnFilter() {
+        if (currentTable == null) return;
+
+        List<String> columns = currentTable.getColumns();
+        String[] names = columns.toArray(new String[0]);
+        boolean[] checked = new boolean[names.length];
+        for (int i = 0; i < names.length; i++) {
+            checked[i] = visibleColumns.contains(names[i]);
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle("Columns")
+                .setMultiChoiceItems(names, checked, (dialog, which, isChecked) -> checked[which] = isChecked)
+                .setPositiveButton("Apply", (dialog, which) -> {
+                    List<String> selected = new ArrayList<>();
+                    for (int i = 0; i < names.length; i++) {
+                        if (checked[i]) selected.add(names[i]);
+                    }
+                    if (selected.isEmpty()) {
+                        Toast.makeText(this, "Select at least one column", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    visibleColumns = selected;
+                    reloadRows();
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void exportCurrentTable() {
+        if (currentTable == null) return;
+
+        File directory = new File(getFilesDir(), "exports");
+        if (!directory.exists() && !directory.mkdirs()) {
+            Toast.makeText(this, "Cannot create " + directory, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        File target = new File(directory, currentTable.getSchema() + "_" + currentTable.getName()
+                + "_" + System.currentTimeMillis() + ".csv");
+
+        repository.exportTable(this, currentTable, new ArrayList<>(visibleColumns), target,
+                new LearningRepository.Callback<Long>() {
+                    @Override
+                    public void onResult(Long rows) {
+                        Toast.makeText(DatabaseViewerActivity.this,
+                                "Exported " + rows + " rows to " + target.getPath(), Toast.LENGTH_LONG).show();
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        Toast.makeText(DatabaseViewerActivity.this,
+                                "Export failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                    }
+                });
+    }
+
+    private static class RowsAdapter extends RecyclerView.Adapter<RowsAdapter.RowViewHolder> {
+        // Shown in italics for SQL NULL, so it cannot be mistaken for the text "null"
+        private static final String NULL_MARKER = "NULL";
+
+        private final List<String[]> rows = new ArrayList<>();
+
+        void clear() {
+            rows.clear();
+            notifyDataSetChanged();
+        }
+
+        void addRows(List<String[]> page) {
+            int start = rows.size();
+            rows.addAll(page);
+            notifyItemRangeInserted(start, page.size());
+        }
+
+        @NonNull
+        @Override
+        public RowViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            View view = LayoutInflater.from(parent.getContext())
+                    .inflate(R.layout.item_database_row, parent, false);
+            return new RowViewHolder(view);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull RowViewHolder holder, int position) {
+            // Joined at bind time so only rows on screen build a display string
+            SpannableStringBuilder text = new SpannableStringBuilder();
+            String[] cells = rows.get(position);
+            for (int i = 0; i < cells.length; i++) {
+                if (i > 0) text.append('\t');
+                if (cells[i] == null) {
+                    int start = text.length();
+                    text.append(NULL_MARKER);
+                    text.setSpan(new StyleSpan(Typeface.ITALIC), start, text.length(),
+                            Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                } else {
+                    text.append(cells[i]);
+                }
+            }
+            holder.rowTextView.setText(text);
+        }
+
+        @Override
+        public int getItemCount() {
+            return rows.size();
+        }
+
+        static class RowViewHolder extends RecyclerView.ViewHolder {
+            TextView rowTextView;
+
+            RowViewHolder(@NonNull View itemView) {
+                super(itemView);
+                rowTextView = itemView.findViewById(R.id.row_text);
+            }
+        }
     }
-} 
\ No newline at end of file
+}
@@ -1,6 +1,9 @@
 package com.example.personalizedlearning.ui.home;
 
 import android.os.Bundle;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -13,7 +16,8 @@ import androidx.navigation.fragment.NavHostFragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.personalizedlearning.R;
-import com.example.personalizedlearning.db.DatabaseHelper;
+import com.example.personalizedlearning.db.ContentDatabase;
+import com.example.personalizedlearning.db.LearningRepository;
 import com.example.personalizedlearning.db.Topic;
 import com.example.personalizedlearning.utils.ProfileManager;
 
@@ -22,50 +26,60 @@ import java.util.List;
 
 public class HomeFragment extends Fragment {
 
+    private static final int PAGE_SIZE = 30;
+    private static final int PREFETCH_DISTANCE = 10;
+
     private RecyclerView topicsRecyclerView;
     private TopicsAdapter topicsAdapter;
     private NavController navController;
-    private DatabaseHelper dbHelper;
+    
+    private long lastTopicId = 0;
+    private boolean loadingPage = false;
+    private boolean lastPageLoaded = false;
+    private LearningRepository.Request pageRequest;
 
     public View onCreateView(@NonNull LayoutInflater inflater,
                             ViewGroup container, Bundle savedInstanceState) {
         View root = inflater.inflate(R.layout.fragment_home, container, false);
         
+        // A recreated view starts with an empty list, so paging restarts as well
+        lastTopicId = 0;
+        loadingPage = false;
+        lastPageLoaded = false;
+        
         try {
             // Get NavController safely
             navController = NavHostFragment.findNavController(this);
             
-            // Initialize database helper
-            dbHelper = DatabaseHelper.getInstance(requireContext());
+            View searchButton = root.findViewById(R.id.search_button);
+            searchButton.setOnClickListener(v -> safeNavigate(R.id.navigation_search, null));
             
             // Initialize RecyclerView
             topicsRecyclerView = root.findViewById(R.id.topics_recycler_view);
             if (topicsRecyclerView != null) {
-                topicsRecyclerView.setLayoutManager(new LinearLayoutManager(requireContext()));
+                LinearLayoutManager layoutManager = new LinearLayoutManager(requireContext());
+                topicsRecyclerView.setLayoutManager(layoutManager);
                 
-                // Get topics from database
-                List<Topic> dbTopics = dbHelper.getAllTopics();
-                List<LearningTopic> topics = new ArrayList<>();
+                topicsAdapter = new TopicsAdapter(new ArrayList<>(), topic -> handleTopicClick(topic));
+                topicsRecyclerView.setAdapter(topicsAdapter);
                 
-                // Convert database topics to UI topics
-                int defaultDrawable = R.drawable.ic_mobile_dev;
-                for (Topic dbTopic : dbTopics) {
-                    topics.add(new LearningTopic(
-                            dbTopic.getId(),
-                            dbTopic.getTitle(),
-                            dbTopic.getDescription(),
-                            dbTopic.getImageResId() > 0 ? dbTopic.getImageResId() : defaultDrawable
-                    ));
-                }
+                // Fetch the next page before the user reaches the end of the list
+                topicsRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+                    @Override
+                    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                        int lastVisible = layoutManager.findLastVisibleItemPosition();
+                        if (lastVisible >= topicsAdapter.getItemCount() - PREFETCH_DISTANCE) {
+                            loadNextPage();
+                        }
+                    }
+                });
                 
-                // If no topics found in database, create sample topics
-                if (topics.isEmpty()) {
-                    topics = getSampleTopics();
-                }
+                // Load the first page of topics in the background
+                loadNextPage();
                 
-                // Set up adapter with topic click listener
-                topicsAdapter = new TopicsAdapter(topics, topic -> handleTopicClick(topic));
-                topicsRecyclerView.setAdapter(topicsAdapter);
+                // Imported content replaces the whole topic list
+                LearningRepository.getInstance(requireContext()).observe(getViewLifecycleOwner(),
+                        this::reloadTopics, ContentDatabase.TABLE_TOPICS);
             }
         } catch (Exception e) {
             Toast.makeText(requireContext(), "Error initializing home screen: " + e.getMessage(),
@@ -76,6 +90,78 @@ public class HomeFragment extends Fragment {
         return root;
     }
     
+    // Keyset paging: each page starts after the last topic id already shown
+    private void loadNextPage() {
+        if (loadingPage || lastPageLoaded) return;
+        loadingPage = true;
+        
+        pageRequest = LearningRepository.getInstance(requireContext()).loadTopicPage(getViewLifecycleOwner(),
+                lastTopicId, PAGE_SIZE, new LearningRepository.Callback<List<Topic>>() {
+                    @Override
+                    public void onResult(List<Topic> page) {
+                        loadingPage = false;
+                        lastPageLoaded = page.size() < PAGE_SIZE;
+                        if (!page.isEmpty()) {
+                            lastTopicId = page.get(page.size() - 1).getId();
+                        }
+                        showTopics(page);
+                    }
+                    
+                    @Override
+                    public void onError(Exception e) {
+                        e.printStackTrace();
+                        loadingPage = false;
+                        lastPageLoaded = true;
+                        showTopics(new ArrayList<>());
+                    }
+                });
+    }
+    
+    private void reloadTopics() {
+        if (pageRequest != null) {
+            pageRequest.cancel();
+        }
+        lastTopicId = 0;
+        loadingPage = false;
+        lastPageLoaded = false;
+        topicsAdapter.clear();
+        loadNextPage();
+    }
+    
+    private void showTopics(List<Topic> page) {
+        logTimeToFirstTopic();
+        
+        List<LearningTopic> topics = new ArrayList<>(page.size());
+        
+        // Convert database topics to UI topics
+        int defaultDrawable = R.drawable.ic_mobile_dev;
+        for (Topic dbTopic : page) {
+            topics.add(new LearningTopic(
+                    dbTopic.getId(),
+                    dbTopic.getTitle(),
+                    dbTopic.getDescription(),
+                    dbTopic.getImageResId() > 0 ? dbTopic.getImageResId() : defaultDrawable
+            ));
+        }
+        
+        // If no topics found in database, create sample topics
+        if (topics.isEmpty() && topicsAdapter.getItemCount() == 0) {
+            topics = getSampleTopics();
+        }
+        
+        topicsAdapter.addTopics(topics);
+    }
+    
+    // Startup metric: process start until the first topics reach the list
+    private static boolean firstTopicsLogged = false;
+    
+    private static void logTimeToFirstTopic() {
+        if (firstTopicsLogged) return;
+        firstTopicsLogged = true;
+        long elapsed = SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime();
+        Log.i("StartupTiming", "time-to-first-topic: " + elapsed + " ms");
+    }
+    
     private void handleTopicClick(LearningTopic topic) {
         try {
             // Check if user has a profile
@@ -193,6 +279,18 @@ public class HomeFragment extends Fragment {
             this.clickListener = clickListener;
         }
         
+        void addTopics(List<LearningTopic> page) {
+            int start = topics.size();
+            topics.addAll(page);
+            notifyItemRangeInserted(start, page.size());
+        }
+        
+        void clear() {
+            int count = topics.size();
+            topics.clear();
+            notifyItemRangeRemoved(0, count);
+        }
+        
         @NonNull
         @Override
         public TopicViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
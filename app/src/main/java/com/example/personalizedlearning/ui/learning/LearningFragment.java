@@ -11,14 +11,41 @@ import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.personalizedlearning.R;
+import com.example.personalizedlearning.db.ContentDatabase;
+import com.example.personalizedlearning.db.DatabaseHelper;
+import com.example.personalizedlearning.db.LearningRepository;
+import com.example.personalizedlearning.db.TopicProgress;
+import com.example.personalizedlearning.utils.ProfileManager;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public class LearningFragment extends Fragment {
 
+    private static final int BATCH_SIZE = 100;
+
     private RecyclerView coursesRecyclerView;
     private LearningCoursesAdapter adapter;
+    private ProgressBar overallProgress;
+    private TextView progressText;
+    
+    private int totalTopics;
+    private int completedTopics;
+    
+    // Rows of the last complete load; the fragment outlives its view on the back stack,
+    // so coming back from an assessment only queries again if the data changed
+    private final List<TopicProgress> loadedProgress = new ArrayList<>();
+    private String loadedEmail;
+    private boolean progressStale = true;
+    private LearningRepository.Request progressRequest;
+    
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        LearningRepository.getInstance(requireContext()).observe(this, this::onProgressChanged,
+                ContentDatabase.TABLE_TOPICS, DatabaseHelper.TABLE_USER_PROGRESS,
+                DatabaseHelper.TABLE_USER_PROFILES);
+    }
 
     public View onCreateView(@NonNull LayoutInflater inflater,
                             ViewGroup container, Bundle savedInstanceState) {
@@ -28,42 +55,110 @@ public class LearningFragment extends Fragment {
         coursesRecyclerView = root.findViewById(R.id.courses_recycler_view);
         coursesRecyclerView.setLayoutManager(new LinearLayoutManager(requireContext()));
         
-        // Create sample courses data
-        List<LearningCourse> courses = getSampleCourses();
-        
-        // Set up adapter
-        adapter = new LearningCoursesAdapter(courses);
+        // Set up adapter; rows arrive from the database in batches
+        adapter = new LearningCoursesAdapter(new ArrayList<>());
         coursesRecyclerView.setAdapter(adapter);
         
-        // Set the overall progress
-        ProgressBar overallProgress = root.findViewById(R.id.overall_progress);
-        TextView progressText = root.findViewById(R.id.progress_text);
-        
-        int progress = calculateOverallProgress(courses);
-        overallProgress.setProgress(progress);
-        progressText.setText(progress + "% Complete");
+        overallProgress = root.findViewById(R.id.overall_progress);
+        progressText = root.findViewById(R.id.progress_text);
+        totalTopics = 0;
+        completedTopics = 0;
+        showOverallProgress();
+        
+        // Progress is per user, so wait until the session is known
+        ProfileManager profileManager = ProfileManager.getInstance(requireContext());
+        profileManager.whenLoaded(() -> {
+            if (getView() == null) return;
+            String email = profileManager.getEmail();
+            if (progressStale || email == null || !email.equals(loadedEmail)) {
+                loadProgress();
+            } else if (loadedProgress.isEmpty()) {
+                adapter.addCourses(getSampleCourses());
+            } else {
+                showBatch(loadedProgress);
+            }
+        });
         
         return root;
     }
     
-    private int calculateOverallProgress(List<LearningCourse> courses) {
-        if (courses.isEmpty()) return 0;
+    private void onProgressChanged() {
+        progressStale = true;
+        // Without a view the next onCreateView reloads
+        if (getView() != null) {
+            adapter.clear();
+            totalTopics = 0;
+            completedTopics = 0;
+            showOverallProgress();
+            loadProgress();
+        }
+    }
+    
+    private void loadProgress() {
+        String email = ProfileManager.getInstance(requireContext()).getEmail();
+        List<TopicProgress> rows = new ArrayList<>();
         
-        int totalProgress = 0;
-        for (LearningCourse course : courses) {
-            totalProgress += course.getProgress();
+        // A newer load replaces one still streaming in
+        if (progressRequest != null) {
+            progressRequest.cancel();
         }
         
-        return totalProgress / courses.size();
+        // One query joins every topic with this user's progress
+        progressRequest = LearningRepository.getInstance(requireContext()).loadTopicProgress(getViewLifecycleOwner(),
+                email, BATCH_SIZE, batch -> {
+                    rows.addAll(batch);
+                    showBatch(batch);
+                }, new LearningRepository.Callback<Integer>() {
+                    @Override
+                    public void onResult(Integer total) {
+                        loadedProgress.clear();
+                        loadedProgress.addAll(rows);
+                        loadedEmail = email;
+                        progressStale = false;
+                        if (total == 0) {
+                            adapter.addCourses(getSampleCourses());
+                        }
+                    }
+                    
+                    @Override
+                    public void onError(Exception e) {
+                        e.printStackTrace();
+                        if (adapter.getItemCount() == 0) {
+                            adapter.addCourses(getSampleCourses());
+                        }
+                    }
+                });
     }
     
+    private void showBatch(List<TopicProgress> batch) {
+        List<LearningCourse> courses = new ArrayList<>(batch.size());
+        for (TopicProgress topic : batch) {
+            courses.add(new LearningCourse(topic.getTitle(),
+                    topic.isCompleted() ? topic.getScore() : 0,
+                    topic.isCompleted()));
+            if (topic.isCompleted()) {
+                completedTopics++;
+            }
+        }
+        totalTopics += batch.size();
+        adapter.addCourses(courses);
+        showOverallProgress();
+    }
+    
+    private void showOverallProgress() {
+        int progress = totalTopics == 0 ? 0 : completedTopics * 100 / totalTopics;
+        overallProgress.setProgress(progress);
+        progressText.setText(progress + "% Complete");
+    }
+    
+    // Placeholder list shown when no topics could be loaded
     private List<LearningCourse> getSampleCourses() {
         List<LearningCourse> courses = new ArrayList<>();
-        courses.add(new LearningCourse("Introduction to Mobile Development", 90));
-        courses.add(new LearningCourse("UI Components", 60));
-        courses.add(new LearningCourse("User Authentication", 30));
-        courses.add(new LearningCourse("Data Storage", 15));
-        courses.add(new LearningCourse("API Integration", 0));
+        courses.add(new LearningCourse("Introduction to Mobile Development", 0, false));
+        courses.add(new LearningCourse("UI Components", 0, false));
+        courses.add(new LearningCourse("User Authentication", 0, false));
+        courses.add(new LearningCourse("Data Storage", 0, false));
+        courses.add(new LearningCourse("API Integration", 0, false));
         return courses;
     }
     
@@ -71,10 +166,12 @@ public class LearningFragment extends Fragment {
     public static class LearningCourse {
         private String title;
         private int progress;
+        private boolean completed;
         
-        public LearningCourse(String title, int progress) {
+        public LearningCourse(String title, int progress, boolean completed) {
             this.title = title;
             this.progress = progress;
+            this.completed = completed;
         }
         
         public String getTitle() {
@@ -84,6 +181,10 @@ public class LearningFragment extends Fragment {
         public int getProgress() {
             return progress;
         }
+        
+        public boolean isCompleted() {
+            return completed;
+        }
     }
     
     // RecyclerView Adapter
@@ -94,6 +195,18 @@ public class LearningFragment extends Fragment {
             this.courses = courses;
         }
         
+        void addCourses(List<LearningCourse> batch) {
+            int start = courses.size();
+            courses.addAll(batch);
+            notifyItemRangeInserted(start, batch.size());
+        }
+        
+        void clear() {
+            int count = courses.size();
+            courses.clear();
+            notifyItemRangeRemoved(0, count);
+        }
+        
         @NonNull
         @Override
         public CourseViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -107,7 +220,9 @@ public class LearningFragment extends Fragment {
             LearningCourse course = courses.get(position);
             holder.titleTextView.setText(course.getTitle());
             holder.progressBar.setProgress(course.getProgress());
-            holder.progressTextView.setText(course.getProgress() + "% Complete");
+            holder.progressTextView.setText(course.isCompleted()
+                    ? "Completed - score " + course.getProgress() + "%"
+                    : "Not completed yet");
         }
         
         @Override
@@ -1,8 +1,7 @@
 package com.example.personalizedlearning.ui.profile;
 
-import android.content.ContentValues;
+import android.content.Context;
 import android.content.DialogInterface;
-import android.database.sqlite.SQLiteDatabase;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -17,10 +16,11 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.fragment.app.Fragment;
 import androidx.navigation.Navigation;
 import com.example.personalizedlearning.R;
-import com.example.personalizedlearning.db.DatabaseHelper;
-import com.example.personalizedlearning.db.UserProfile;
+import com.example.personalizedlearning.db.LearningRepository;
 import com.example.personalizedlearning.utils.DataClearUtil;
+import com.example.personalizedlearning.utils.LearningProgressManager;
 import com.example.personalizedlearning.utils.ProfileManager;
+import com.example.personalizedlearning.utils.Session;
 
 public class ProfileFragment extends Fragment {
 
@@ -76,14 +76,17 @@ public class ProfileFragment extends Fragment {
         deleteProfileButton.setOnClickListener(v -> showDeleteConfirmationDialog());
         signOutButton.setOnClickListener(v -> signOut());
         
-        // Check if profile already exists
-        if (profileManager.isProfileCreated()) {
-            // Show profile info
-            showProfileInfo();
-        } else {
-            // Show profile form
-            showEditForm();
-        }
+        // Check if profile already exists, once the session is known
+        profileManager.whenLoaded(() -> {
+            if (getView() == null) return;
+            if (profileManager.isProfileCreated()) {
+                // Show profile info
+                showProfileInfo();
+            } else {
+                // Show profile form
+                showEditForm();
+            }
+        });
         
         return root;
     }
@@ -102,44 +105,68 @@ public class ProfileFragment extends Fragment {
         try {
             // Get the old email before updating
             String oldEmail = profileManager.getEmail();
+            Context appContext = requireContext().getApplicationContext();
             
-            // Save to SharedPreferences
-            profileManager.saveProfile(name, email, interests);
-            
-            // Update in SQLite database
-            DatabaseHelper dbHelper = DatabaseHelper.getInstance(requireContext());
-            UserProfile userProfile = dbHelper.getUserByEmail(oldEmail);
-            
-            if (userProfile != null) {
-                // Update existing profile
-                ContentValues values = new ContentValues();
-                values.put("username", name);
-                values.put("email", email);
-                values.put("interests", interests);
-                
-                SQLiteDatabase db = dbHelper.getWritableDatabase();
-                db.update("user_profiles", values,
-                        "email=?", new String[]{oldEmail});
-            } else {
-                // Create new profile if it doesn't exist
-                dbHelper.createUserProfile(name, email, "", interests);
-            }
-            
-            // Show profile info
-            showProfileInfo();
-            
-            Toast.makeText(requireContext(), "Profile saved successfully", Toast.LENGTH_SHORT).show();
-            
-            // If we should redirect to a specific topic's study material
-            if (shouldRedirect) {
-                redirectToStudyMaterial();
-            }
+            // Update in SQLite database first; accounts are only created by sign-up.
+            // Not tied to the view: the session must follow the row even if the user
+            // leaves the screen before the write finishes.
+            LearningRepository.getInstance(requireContext()).saveUserProfile(null,
+                    oldEmail, name, email, interests, new LearningRepository.Callback<Boolean>() {
+                        @Override
+                        public void onResult(Boolean saved) {
+                            if (saved) {
+                                // Only now: progress is keyed by the session email, which
+                                // must not point at another account if the update failed
+                                profileManager.saveProfile(name, email, interests);
+                                LearningProgressManager.getInstance(appContext).preload();
+                            }
+                            if (getView() == null) return;
+                            if (!saved) {
+                                onAccountMissing(email);
+                                return;
+                            }
+                            
+                            // Show profile info
+                            showProfileInfo();
+                            
+                            Toast.makeText(requireContext(), "Profile saved successfully", Toast.LENGTH_SHORT).show();
+                            
+                            // If we should redirect to a specific topic's study material
+                            if (shouldRedirect) {
+                                redirectToStudyMaterial();
+                            }
+                        }
+                        
+                        @Override
+                        public void onError(Exception e) {
+                            // The session still holds the old email, which the row still has
+                            if (getView() == null) return;
+                            Toast.makeText(requireContext(), "Error saving profile: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                            e.printStackTrace();
+                        }
+                    });
         } catch (Exception e) {
             Toast.makeText(requireContext(), "Error saving profile: " + e.getMessage(), Toast.LENGTH_SHORT).show();
             e.printStackTrace();
         }
     }
     
+    // The session has no account behind it, e.g. a profile from before sign-up
+    // existed; an account needs a password, so send the user to sign up
+    private void onAccountMissing(String email) {
+        profileManager.signOut();
+        Toast.makeText(requireContext(), "No account found for this profile. Please sign up.",
+                Toast.LENGTH_LONG).show();
+        
+        Bundle args = new Bundle();
+        args.putString("prefill_email", email);
+        if (shouldRedirect) {
+            args.putInt("topic_id", topicId);
+            args.putString("topic_title", topicTitle);
+        }
+        Navigation.findNavController(requireView()).navigate(R.id.navigation_sign_up, args);
+    }
+    
     private void redirectToStudyMaterial() {
         if (topicId > 0) {
             Bundle args = new Bundle();
@@ -150,17 +177,18 @@ public class ProfileFragment extends Fragment {
     }
     
     private void showProfileInfo() {
-        // Update profile info views
-        nameTextView.setText(profileManager.getUsername());
-        emailTextView.setText(profileManager.getEmail());
-        interestsTextView.setText(profileManager.getInterests());
+        // Update profile info views from one snapshot
+        Session session = profileManager.getSession();
+        nameTextView.setText(session.getUsername());
+        emailTextView.setText(session.getEmail());
+        interestsTextView.setText(session.getInterests());
         
         // Show profile info layout and hide form layout
         profileInfoLayout.setVisibility(View.VISIBLE);
         profileFormLayout.setVisibility(View.GONE);
         
         // If we have a topic and just created the profile, redirect
-        if (shouldRedirect && profileManager.isProfileCreated()) {
+        if (shouldRedirect && session.isSignedIn()) {
             // Small delay to show the success message
             requireView().postDelayed(this::redirectToStudyMaterial, 1000);
         }
@@ -168,10 +196,11 @@ public class ProfileFragment extends Fragment {
     
     private void showEditForm() {
         // Pre-fill form if profile exists
-        if (profileManager.isProfileCreated()) {
-            nameEditText.setText(profileManager.getUsername());
-            emailEditText.setText(profileManager.getEmail());
-            interestsEditText.setText(profileManager.getInterests());
+        Session session = profileManager.getSession();
+        if (session.isSignedIn()) {
+            nameEditText.setText(session.getUsername());
+            emailEditText.setText(session.getEmail());
+            interestsEditText.setText(session.getInterests());
         }
         
         // Show form layout and hide profile info layout
@@ -206,15 +235,9 @@ public class ProfileFragment extends Fragment {
     
     private void deleteProfile() {
         try {
-            // Get the email before deleting
-            String email = ProfileManager.getInstance(requireContext()).getEmail();
-            
-            // Call the utility method to clear all user data
+            // Clears the session now and deletes the user's rows on the write thread
             DataClearUtil.clearAllData(requireContext());
             
-            // Delete user from database
-            DatabaseHelper.getInstance(requireContext()).deleteUserByEmail(email);
-            
             // Show success message
             Toast.makeText(requireContext(), "Account deleted successfully", Toast.LENGTH_SHORT).show();
             
@@ -234,10 +257,8 @@ public class ProfileFragment extends Fragment {
         builder.setMessage("Are you sure you want to sign out?");
         
         builder.setPositiveButton("Sign Out", (dialog, id) -> {
-            // Clear session data
-            ProfileManager profileManager = ProfileManager.getInstance(requireContext());
-            profileManager.clearSession();
-            profileManager.setProfileCreated(false); // Mark profile as not created to force login
+            // End the session; the navigation gate sees it at once
+            ProfileManager.getInstance(requireContext()).signOut();
             
             // Show success message
             Toast.makeText(requireContext(), "Signed out successfully", Toast.LENGTH_SHORT).show();
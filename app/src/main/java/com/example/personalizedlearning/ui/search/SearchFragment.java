@@ -0,0 +1,227 @@
+package com.example.personalizedlearning.ui.search;
+
+import android.graphics.Typeface;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.TextWatcher;
+import android.text.style.StyleSpan;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.EditText;
+import android.widget.TextView;
+import android.widget.Toast;
+import androidx.annotation.NonNull;
+import androidx.fragment.app.Fragment;
+import androidx.navigation.NavController;
+import androidx.navigation.fragment.NavHostFragment;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import com.example.personalizedlearning.R;
+import com.example.personalizedlearning.db.ContentDatabase;
+import com.example.personalizedlearning.db.LearningRepository;
+import com.example.personalizedlearning.db.SearchResult;
+import com.example.personalizedlearning.utils.ProfileManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SearchFragment extends Fragment {
+
+    // Wait for a pause in typing before querying
+    private static final long SEARCH_DELAY_MS = 200;
+    private static final int MAX_RESULTS = 50;
+
+    private EditText searchEditText;
+    private TextView statusTextView;
+    private ResultsAdapter resultsAdapter;
+    private NavController navController;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable searchRunnable = this::runSearch;
+    private LearningRepository.Request pendingSearch;
+
+    @Override
+    public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container,
+                             Bundle savedInstanceState) {
+        View root = inflater.inflate(R.layout.fragment_search, container, false);
+
+        navController = NavHostFragment.findNavController(this);
+        searchEditText = root.findViewById(R.id.search_edit_text);
+        statusTextView = root.findViewById(R.id.search_status);
+
+        RecyclerView resultsRecyclerView = root.findViewById(R.id.search_results_recycler_view);
+        resultsRecyclerView.setLayoutManager(new LinearLayoutManager(requireContext()));
+        resultsAdapter = new ResultsAdapter(this::handleResultClick);
+        resultsRecyclerView.setAdapter(resultsAdapter);
+
+        searchEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                handler.removeCallbacks(searchRunnable);
+                handler.postDelayed(searchRunnable, SEARCH_DELAY_MS);
+            }
+        });
+
+        return root;
+    }
+
+    @Override
+    public void onDestroyView() {
+        handler.removeCallbacks(searchRunnable);
+        super.onDestroyView();
+    }
+
+    private void runSearch() {
+        if (pendingSearch != null) {
+            pendingSearch.cancel();
+        }
+
+        String text = searchEditText.getText().toString().trim();
+        if (text.isEmpty()) {
+            resultsAdapter.setResults(new ArrayList<>());
+            statusTextView.setText(R.string.search_prompt);
+            return;
+        }
+
+        pendingSearch = LearningRepository.getInstance(requireContext()).search(getViewLifecycleOwner(),
+                text, MAX_RESULTS, new LearningRepository.Callback<List<SearchResult>>() {
+                    @Override
+                    public void onResult(List<SearchResult> results) {
+                        resultsAdapter.setResults(results);
+                        if (results.isEmpty()) {
+                            statusTextView.setText(R.string.search_no_results);
+                        } else {
+                            statusTextView.setText(getResources().getQuantityString(
+                                    R.plurals.search_result_count, results.size(), results.size()));
+                        }
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        e.printStackTrace();
+                        statusTextView.setText(R.string.search_no_results);
+                    }
+                });
+    }
+
+    private void handleResultClick(SearchResult result) {
+        Bundle args = new Bundle();
+        args.putString("topic_title", result.getTopicTitle());
+        args.putInt("topic_id", result.getTopicId());
+
+        boolean isAuthenticated = false;
+        try {
+            isAuthenticated = ProfileManager.getInstance(requireContext()).isProfileCreated();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        try {
+            if (!isAuthenticated) {
+                navController.navigate(R.id.navigation_sign_in, args);
+                Toast.makeText(requireContext(),
+                        "Please sign in to access learning materials",
+                        Toast.LENGTH_SHORT).show();
+            } else if (SearchResult.KIND_QUESTION.equals(result.getKind())) {
+                navController.navigate(R.id.navigation_assessment, args);
+            } else {
+                navController.navigate(R.id.navigation_study_material, args);
+            }
+        } catch (Exception e) {
+            Toast.makeText(requireContext(), "Navigation error: " + e.getMessage(),
+                    Toast.LENGTH_SHORT).show();
+            e.printStackTrace();
+        }
+    }
+
+    // Bolds the matched terms that ContentDatabase marks in the snippet
+    private static CharSequence highlight(String snippet) {
+        SpannableStringBuilder text = new SpannableStringBuilder();
+        int position = 0;
+        while (position < snippet.length()) {
+            int start = snippet.indexOf(ContentDatabase.SNIPPET_START, position);
+            if (start < 0) {
+                text.append(snippet, position, snippet.length());
+                break;
+            }
+            int end = snippet.indexOf(ContentDatabase.SNIPPET_END, start);
+            if (end < 0) {
+                end = snippet.length();
+            }
+            text.append(snippet, position, start);
+            int spanStart = text.length();
+            text.append(snippet, start + ContentDatabase.SNIPPET_START.length(), end);
+            text.setSpan(new StyleSpan(Typeface.BOLD), spanStart, text.length(),
+                    Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            position = Math.min(end + ContentDatabase.SNIPPET_END.length(), snippet.length());
+        }
+        return text;
+    }
+
+    interface ResultClickListener {
+        void onResultClick(SearchResult result);
+    }
+
+    private static class ResultsAdapter extends RecyclerView.Adapter<ResultsAdapter.ResultViewHolder> {
+        private List<SearchResult> results = new ArrayList<>();
+        private final ResultClickListener clickListener;
+
+        ResultsAdapter(ResultClickListener clickListener) {
+            this.clickListener = clickListener;
+        }
+
+        void setResults(List<SearchResult> results) {
+            this.results = results;
+            notifyDataSetChanged();
+        }
+
+        @NonNull
+        @Override
+        public ResultViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            View view = LayoutInflater.from(parent.getContext())
+                    .inflate(R.layout.item_search_result, parent, false);
+            return new ResultViewHolder(view);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull ResultViewHolder holder, int position) {
+            SearchResult result = results.get(position);
+            holder.topicTextView.setText(result.getTopicTitle());
+            holder.kindTextView.setText(SearchResult.KIND_QUESTION.equals(result.getKind())
+                    ? R.string.search_kind_question : R.string.search_kind_material);
+            holder.snippetTextView.setText(highlight(result.getSnippet()));
+            holder.itemView.setOnClickListener(v -> clickListener.onResultClick(result));
+        }
+
+        @Override
+        public int getItemCount() {
+            return results.size();
+        }
+
+        static class ResultViewHolder extends RecyclerView.ViewHolder {
+            TextView topicTextView;
+            TextView kindTextView;
+            TextView snippetTextView;
+
+            ResultViewHolder(@NonNull View itemView) {
+                super(itemView);
+                topicTextView = itemView.findViewById(R.id.search_result_topic);
+                kindTextView = itemView.findViewById(R.id.search_result_kind);
+                snippetTextView = itemView.findViewById(R.id.search_result_snippet);
+            }
+        }
+    }
+}
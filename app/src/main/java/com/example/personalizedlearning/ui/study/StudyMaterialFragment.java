@@ -1,6 +1,8 @@
 package com.example.personalizedlearning.ui.study;
 
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -9,22 +11,44 @@ import android.widget.TextView;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.appcompat.widget.AppCompatTextView;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.view.OneShotPreDrawListener;
+import androidx.core.widget.TextViewCompat;
 import androidx.fragment.app.Fragment;
 import androidx.navigation.Navigation;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 import com.example.personalizedlearning.R;
-import com.example.personalizedlearning.db.DatabaseHelper;
+import com.example.personalizedlearning.db.ContentDatabase;
+import com.example.personalizedlearning.db.LearningRepository;
+import com.example.personalizedlearning.db.StudySection;
 import com.example.personalizedlearning.utils.LearningProgressManager;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 public class StudyMaterialFragment extends Fragment {
 
+    // A page covers a screen or two of a long lesson
+    private static final int PAGE_SIZE = 8;
+    private static final int PREFETCH_DISTANCE = 3;
+
     private TextView titleTextView;
-    private TextView contentTextView;
+    private RecyclerView sectionsRecyclerView;
+    private SectionsAdapter sectionsAdapter;
     private Button markCompletedButton;
     private Button takeAssessmentButton;
     
     private int topicId;
     private String topicTitle;
-    private DatabaseHelper dbHelper;
+
+    // Keyset paging state; reset with the view
+    private int lastPosition = ContentDatabase.FIRST_SECTION;
+    private boolean loadingPage = false;
+    private boolean lastPageLoaded = false;
+    private long openedAt;
 
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
@@ -33,9 +57,6 @@ public class StudyMaterialFragment extends Fragment {
             topicId = getArguments().getInt("topic_id", 0);
             topicTitle = getArguments().getString("topic_title", "Study Material");
         }
-        
-        // Initialize database helper
-        dbHelper = DatabaseHelper.getInstance(requireContext());
     }
 
     @Override
@@ -44,27 +65,39 @@ public class StudyMaterialFragment extends Fragment {
         View root = inflater.inflate(R.layout.fragment_study_material, container, false);
 
         titleTextView = root.findViewById(R.id.material_title);
-        contentTextView = root.findViewById(R.id.material_content);
         markCompletedButton = root.findViewById(R.id.mark_completed_button);
         takeAssessmentButton = root.findViewById(R.id.take_assessment_button);
         
         // Set title
         titleTextView.setText(topicTitle);
         
+        // Sections are bound, and their text measured, only as they come into view
+        sectionsRecyclerView = root.findViewById(R.id.material_sections);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(requireContext());
+        sectionsRecyclerView.setLayoutManager(layoutManager);
+        sectionsAdapter = new SectionsAdapter();
+        sectionsRecyclerView.setAdapter(sectionsAdapter);
+        sectionsRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (layoutManager.findLastVisibleItemPosition() >= sectionsAdapter.getItemCount() - PREFETCH_DISTANCE) {
+                    loadNextSections();
+                }
+            }
+        });
+        
         // Load content based on topic ID
-        loadStudyContent(topicId);
+        openedAt = SystemClock.elapsedRealtime();
+        lastPosition = ContentDatabase.FIRST_SECTION;
+        loadingPage = false;
+        lastPageLoaded = false;
+        loadNextSections();
         
-        // Check if topic is already completed
-        boolean isCompleted = LearningProgressManager.getInstance(requireContext())
-                .isTopicCompleted(topicId);
-        
-        if (isCompleted) {
-            markCompletedButton.setVisibility(View.GONE);
-            takeAssessmentButton.setVisibility(View.VISIBLE);
-        } else {
-            markCompletedButton.setVisibility(View.VISIBLE);
-            takeAssessmentButton.setVisibility(View.GONE);
-        }
+        // Check if topic is already completed; the buttons appear once the progress
+        // snapshot has loaded, which is at once unless it is still loading
+        markCompletedButton.setVisibility(View.GONE);
+        takeAssessmentButton.setVisibility(View.GONE);
+        LearningProgressManager.getInstance(requireContext()).preload(this::showCompletionState);
         
         // Set button click listeners
         markCompletedButton.setOnClickListener(v -> {
@@ -83,24 +116,72 @@ public class StudyMaterialFragment extends Fragment {
         return root;
     }
     
-    private void loadStudyContent(int topicId) {
-        try {
-            // Load content from database
-            String content = dbHelper.getStudyContent(topicId);
-            
-            // If content is available, set it
-            if (content != null && !content.isEmpty()) {
-                contentTextView.setText(content);
-            } else {
-                // Fallback to hardcoded content if database content is not available
-                contentTextView.setText(getFallbackContent(topicId));
-            }
-        } catch (Exception e) {
-            // Handle error and fallback to hardcoded content
-            Toast.makeText(requireContext(), "Error loading content: " + e.getMessage(), 
-                    Toast.LENGTH_SHORT).show();
-            contentTextView.setText(getFallbackContent(topicId));
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        // The progress snapshot may arrive after the view is gone
+        markCompletedButton = null;
+        takeAssessmentButton = null;
+    }
+    
+    private void showCompletionState() {
+        if (markCompletedButton == null) return;
+        
+        LearningProgressManager progressManager = LearningProgressManager.getInstance(requireContext());
+        if (!progressManager.isLoaded()) {
+            // Marking the topic still works: the write goes straight to the database
+            Toast.makeText(requireContext(), "Could not load your progress", Toast.LENGTH_SHORT).show();
+        }
+        boolean isCompleted = progressManager.isTopicCompleted(topicId);
+        markCompletedButton.setVisibility(isCompleted ? View.GONE : View.VISIBLE);
+        takeAssessmentButton.setVisibility(isCompleted ? View.VISIBLE : View.GONE);
+    }
+    
+    // Keyset paging: each page starts after the last section position already shown
+    private void loadNextSections() {
+        if (loadingPage || lastPageLoaded) return;
+        loadingPage = true;
+        boolean firstPage = sectionsAdapter.getItemCount() == 0;
+
+        LearningRepository.getInstance(requireContext()).loadStudySections(getViewLifecycleOwner(), topicId,
+                lastPosition, PAGE_SIZE, new LearningRepository.Callback<List<StudySection>>() {
+                    @Override
+                    public void onResult(List<StudySection> sections) {
+                        loadingPage = false;
+                        lastPageLoaded = sections.size() < PAGE_SIZE;
+                        if (!sections.isEmpty()) {
+                            lastPosition = sections.get(sections.size() - 1).getPosition();
+                            showSections(sections, firstPage);
+                        } else if (firstPage) {
+                            // Fallback to hardcoded content if database content is not available
+                            showFallbackContent();
+                        }
+                    }
+                    
+                    @Override
+                    public void onError(Exception e) {
+                        loadingPage = false;
+                        lastPageLoaded = true;
+                        // Handle error and fallback to hardcoded content
+                        Toast.makeText(requireContext(), "Error loading content: " + e.getMessage(), 
+                                Toast.LENGTH_SHORT).show();
+                        if (firstPage) {
+                            showFallbackContent();
+                        }
+                    }
+                });
+    }
+
+    private void showFallbackContent() {
+        showSections(Collections.singletonList(new StudySection(0, getFallbackContent(topicId))), true);
+    }
+
+    private void showSections(List<StudySection> sections, boolean firstPage) {
+        if (firstPage) {
+            OneShotPreDrawListener.add(sectionsRecyclerView, () -> Log.i("StudyTiming",
+                    "time-to-first-section: " + (SystemClock.elapsedRealtime() - openedAt) + " ms"));
         }
+        sectionsAdapter.addSections(sections);
     }
     
     // Fallback method for hardcoded content in case database content is not available
@@ -168,4 +249,45 @@ public class StudyMaterialFragment extends Fragment {
                 return "Content not available for this topic.";
         }
     }
-} 
\ No newline at end of file
+
+    private static class SectionsAdapter extends RecyclerView.Adapter<SectionsAdapter.SectionViewHolder> {
+        private final List<StudySection> sections = new ArrayList<>();
+
+        void addSections(List<StudySection> page) {
+            int start = sections.size();
+            sections.addAll(page);
+            notifyItemRangeInserted(start, page.size());
+        }
+
+        @NonNull
+        @Override
+        public SectionViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            View view = LayoutInflater.from(parent.getContext())
+                    .inflate(R.layout.item_study_section, parent, false);
+            return new SectionViewHolder(view);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull SectionViewHolder holder, int position) {
+            // Text is measured on a background thread; RecyclerView's prefetch binds
+            // upcoming sections early, so the work is usually done before they are shown
+            AppCompatTextView textView = holder.sectionTextView;
+            textView.setTextFuture(PrecomputedTextCompat.getTextFuture(sections.get(position).getText(),
+                    TextViewCompat.getTextMetricsParams(textView), null));
+        }
+
+        @Override
+        public int getItemCount() {
+            return sections.size();
+        }
+
+        static class SectionViewHolder extends RecyclerView.ViewHolder {
+            AppCompatTextView sectionTextView;
+
+            SectionViewHolder(@NonNull View itemView) {
+                super(itemView);
+                sectionTextView = itemView.findViewById(R.id.section_text);
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.personalizedlearning.utils;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Set of completed topic ids stored as a bitset: bit {@code id} is set when topic
+ * {@code id} is completed. Membership, add and remove are O(1), and the cardinality
+ * is kept up to date so counting is O(1) as well.
+ *
+ * Topic ids are small, dense row ids, so 10k topics take about 1.2 KB. The set is
+ * persisted with {@link #toByteArray}: a format byte followed by the words up to the
+ * highest set bit, big-endian. Not thread-safe.
+ */
+public final class CompletedTopicSet {
+    private static final int FORMAT = 1;
+    private static final long[] NO_WORDS = new long[0];
+
+    private long[] words;
+    private int cardinality;
+
+    public CompletedTopicSet() {
+        words = NO_WORDS;
+    }
+
+    private CompletedTopicSet(long[] words) {
+        this.words = words;
+        for (long word : words) {
+            cardinality += Long.bitCount(word);
+        }
+    }
+
+    public boolean contains(int topicId) {
+        if (topicId < 0) return false;
+        int index = topicId >>> 6;
+        return index < words.length && (words[index] & (1L << topicId)) != 0;
+    }
+
+    /** @return true if the topic was not in the set before */
+    public boolean add(int topicId) {
+        checkId(topicId);
+        int index = topicId >>> 6;
+        if (index >= words.length) {
+            // Grow by at least half so marking ids in ascending order stays amortized O(1)
+            words = Arrays.copyOf(words, Math.max(index + 1, words.length + (words.length >> 1)));
+        }
+        long bit = 1L << topicId;
+        if ((words[index] & bit) != 0) return false;
+        words[index] |= bit;
+        cardinality++;
+        return true;
+    }
+
+    /** @return true if the topic was in the set */
+    public boolean remove(int topicId) {
+        if (!contains(topicId)) return false;
+        words[topicId >>> 6] &= ~(1L << topicId);
+        cardinality--;
+        return true;
+    }
+
+    public int size() {
+        return cardinality;
+    }
+
+    /** Returns the ids in ascending order; visits set bits only, not every id up to the largest. */
+    public int[] toArray() {
+        int[] ids = new int[cardinality];
+        int next = 0;
+        for (int index = 0; index < words.length; index++) {
+            long word = words[index];
+            while (word != 0) {
+                ids[next++] = (index << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return ids;
+    }
+
+    public void clear() {
+        words = NO_WORDS;
+        cardinality = 0;
+    }
+
+    public byte[] toByteArray() {
+        int used = words.length;
+        while (used > 0 && words[used - 1] == 0) {
+            used--;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(1 + used * Long.BYTES);
+        buffer.put((byte) FORMAT);
+        for (int i = 0; i < used; i++) {
+            buffer.putLong(words[i]);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Reads a set written by {@link #toByteArray}.
+     *
+     * @throws IllegalArgumentException if {@code bytes} is not in that format
+     */
+    public static CompletedTopicSet fromByteArray(byte[] bytes) {
+        if (bytes.length == 0 || bytes[0] != FORMAT || (bytes.length - 1) % Long.BYTES != 0) {
+            throw new IllegalArgumentException("Not a completed topic set");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, bytes.length - 1);
+        long[] words = new long[(bytes.length - 1) / Long.BYTES];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = buffer.getLong();
+        }
+        return new CompletedTopicSet(words);
+    }
+
+    private static void checkId(int topicId) {
+        if (topicId < 0) {
+            throw new IllegalArgumentException("Negative topic id " + topicId);
+        }
+    }
+}
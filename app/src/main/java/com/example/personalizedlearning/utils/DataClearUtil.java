@@ -1,39 +1,39 @@
 package com.example.personalizedlearning.utils;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.widget.Toast;
 
-import com.example.personalizedlearning.db.DatabaseHelper;
+import com.example.personalizedlearning.db.LearningRepository;
 
 public class DataClearUtil {
     
+    /**
+     * Clears the signed-in user's session and preferences, and deletes the user and
+     * everything they own from the database on the background write thread. The
+     * deletion is a single cascading transaction; writes queued after it, such as a new
+     * sign-up with the same email, run after it completes.
+     */
     public static void clearAllData(Context context) {
         try {
-            // Get current user email from SharedPreferences
+            // Get current user email from the session
             ProfileManager profileManager = ProfileManager.getInstance(context);
             String userEmail = profileManager.getEmail();
             
-            // Clear user data from SQLite database if email is available
+            // Delete user data from SQLite in the background; not bound to a screen,
+            // so it completes even though the caller navigates away. Failures are logged.
             if (userEmail != null && !userEmail.isEmpty()) {
-                DatabaseHelper dbHelper = DatabaseHelper.getInstance(context);
-                dbHelper.deleteUserByEmail(userEmail);
+                LearningRepository.getInstance(context).deleteUserByEmail(null, userEmail, null);
             }
             
-            // Clear profile data from SharedPreferences
-            profileManager.clearProfile();
+            // End the session and clear the stored profile
+            profileManager.signOut();
             
-            // Clear learning progress from SharedPreferences
-            // Since LearningProgressManager doesn't have a direct clear method,
-            // we'll clear its SharedPreferences directly
-            context.getSharedPreferences(
-                "learning_progress_prefs", 
-                Context.MODE_PRIVATE
-            ).edit().clear().apply();
+            // Clear learning progress, including the copy the manager holds in memory
+            LearningProgressManager.getInstance(context).clearProgress();
             
         } catch (Exception e) {
             Toast.makeText(context, "Error clearing data: " + e.getMessage(), Toast.LENGTH_SHORT).show();
             e.printStackTrace();
         }
     }
-} 
\ No newline at end of file
+}
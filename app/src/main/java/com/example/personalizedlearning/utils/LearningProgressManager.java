@@ -2,20 +2,60 @@ package com.example.personalizedlearning.utils;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.util.Base64;
+import android.util.Log;
+import android.util.SparseIntArray;
 
-import java.util.HashSet;
+import com.example.personalizedlearning.db.LearningRepository;
+import com.example.personalizedlearning.db.ProgressUpdate;
+import com.example.personalizedlearning.db.TopicProgress;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+/**
+ * Progress of the signed-in user. The user_progress table is the only store; this
+ * class keeps a write-through snapshot of the user's rows in memory, so reads never
+ * touch disk and writes update the snapshot at once and reach the table through
+ * the repository's progress queue.
+ *
+ * Nothing here touches disk on the calling thread. Call {@link #preload} after
+ * sign-in so the snapshot is ready before the first read; until it is, reads report
+ * no progress and start the load, writes go to the queue at once and are applied
+ * to the snapshot when it arrives, and {@link #preload(Runnable)} tells a screen
+ * when to read again.
+ */
 public class LearningProgressManager {
+    private static final String TAG = "LearningProgressManager";
+
+    // Progress used to live in these preferences; they are folded into user_progress
+    // on the write thread before the first snapshot loads, then cleared
     private static final String PREF_NAME = "learning_progress_prefs";
     private static final String KEY_COMPLETED_TOPICS = "completed_topics";
+    private static final String KEY_COMPLETED_TOPIC_BITS = "completed_topic_bits";
     private static final String KEY_ASSESSMENT_SCORES = "assessment_scores";
 
     private static LearningProgressManager instance;
-    private final SharedPreferences preferences;
+    private final Context context;
+    private final SharedPreferences legacyPreferences;
+
+    // Snapshot of snapshotEmail's progress; null until loaded
+    private String snapshotEmail;
+    private CompletedTopicSet completedTopics;
+    private SparseIntArray scores;
+    private String loadingEmail;
+    // Waiting for the current load to finish
+    private final List<Runnable> loadedCallbacks = new ArrayList<>();
+    // Writes already queued while loadingEmail's snapshot loads, to apply to it
+    private final List<Runnable> pendingChanges = new ArrayList<>();
+    private boolean legacyImported;
 
     private LearningProgressManager(Context context) {
-        preferences = context.getApplicationContext().getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        this.context = context.getApplicationContext();
+        legacyPreferences = this.context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
     }
 
     public static synchronized LearningProgressManager getInstance(Context context) {
@@ -25,33 +65,70 @@ public class LearningProgressManager {
         return instance;
     }
 
-    public boolean isTopicCompleted(int topicId) {
-        Set<String> completedTopics = getCompletedTopics();
-        return completedTopics.contains(String.valueOf(topicId));
+    /** Loads the signed-in user's snapshot in the background, if it is not loaded yet. */
+    public void preload() {
+        preload(null);
+    }
+
+    /**
+     * Like {@link #preload()}, then runs {@code onLoaded} on the main thread once the
+     * load has finished, at once if the snapshot is already in memory. It also runs if
+     * the load fails or nobody is signed in; check {@link #isLoaded}.
+     */
+    public synchronized void preload(Runnable onLoaded) {
+        String email = currentEmail();
+        if (email.isEmpty() || email.equals(snapshotEmail)) {
+            if (onLoaded != null) onLoaded.run();
+            return;
+        }
+        if (!email.equals(loadingEmail)) {
+            // Changes made for another user's snapshot no longer apply
+            pendingChanges.clear();
+            loadingEmail = email;
+            importLegacyProgress(email);
+            load(email);
+        }
+        if (onLoaded != null) loadedCallbacks.add(onLoaded);
+    }
+
+    public synchronized boolean isLoaded() {
+        String email = currentEmail();
+        return !email.isEmpty() && email.equals(snapshotEmail);
     }
 
-    public void markTopicCompleted(int topicId) {
-        Set<String> completedTopics = getCompletedTopics();
-        completedTopics.add(String.valueOf(topicId));
-        saveCompletedTopics(completedTopics);
+    public synchronized boolean isTopicCompleted(int topicId) {
+        return snapshotReady() && completedTopics.contains(topicId);
     }
 
-    public void markTopicUncompleted(int topicId) {
-        Set<String> completedTopics = getCompletedTopics();
-        completedTopics.remove(String.valueOf(topicId));
-        saveCompletedTopics(completedTopics);
+    /** Marks a topic completed, keeping any assessment score it already has. */
+    public synchronized void markTopicCompleted(int topicId) {
+        if (!snapshotReady()) {
+            // The table keeps the score, which the snapshot does not know yet
+            writeBeforeLoad(topicId, ProgressUpdate.KEEP_SCORE, () -> completedTopics.add(topicId));
+            return;
+        }
+        if (completedTopics.contains(topicId)) return;
+        write(topicId, scores.get(topicId));
     }
 
-    public int getCompletedTopicsCount() {
-        return getCompletedTopics().size();
+    /** Records an assessment result; passing an assessment completes the topic. */
+    public synchronized void saveAssessmentScore(int topicId, int score) {
+        if (!snapshotReady()) {
+            writeBeforeLoad(topicId, score, () -> {
+                completedTopics.add(topicId);
+                scores.put(topicId, score);
+            });
+            return;
+        }
+        write(topicId, score);
     }
 
-    public void saveAssessmentScore(int topicId, int score) {
-        preferences.edit().putInt(KEY_ASSESSMENT_SCORES + "_" + topicId, score).apply();
+    public synchronized int getAssessmentScore(int topicId) {
+        return snapshotReady() ? scores.get(topicId) : 0;
     }
 
-    public int getAssessmentScore(int topicId) {
-        return preferences.getInt(KEY_ASSESSMENT_SCORES + "_" + topicId, 0);
+    public synchronized int getCompletedTopicsCount() {
+        return snapshotReady() ? completedTopics.size() : 0;
     }
 
     public float getOverallProgress(int totalTopics) {
@@ -59,15 +136,157 @@ public class LearningProgressManager {
         return (float) getCompletedTopicsCount() / totalTopics * 100;
     }
 
-    private Set<String> getCompletedTopics() {
-        return preferences.getStringSet(KEY_COMPLETED_TOPICS, new HashSet<>());
+    /**
+     * Drops the snapshot. The user's rows are removed with the account, through the
+     * cascade from user_profiles.
+     */
+    public synchronized void clearProgress() {
+        snapshotEmail = null;
+        completedTopics = null;
+        scores = null;
+        loadingEmail = null;
+        pendingChanges.clear();
+        legacyPreferences.edit().clear().apply();
+    }
+
+    private void write(int topicId, int score) {
+        completedTopics.add(topicId);
+        scores.put(topicId, score);
+        LearningRepository.getInstance(context).markTopicCompleted(snapshotEmail, topicId, score);
+    }
+
+    // Sent to the write queue at once, like any write, so it survives the process
+    // dying before the snapshot arrives. The load may have read the table before the
+    // write landed, so the change is also applied to the snapshot when it arrives.
+    private void writeBeforeLoad(int topicId, int score, Runnable change) {
+        String email = currentEmail();
+        if (email.isEmpty()) return;
+        LearningRepository.getInstance(context).markTopicCompleted(email, topicId, score);
+        if (email.equals(loadingEmail)) {
+            pendingChanges.add(change);
+        }
+    }
+
+    // False until the signed-in user's snapshot is in memory; starts loading it
+    private boolean snapshotReady() {
+        if (isLoaded()) return true;
+        preload(null);
+        return false;
+    }
+
+    private void load(String email) {
+        LearningRepository.getInstance(context).loadUserProgress(null, email,
+                new LearningRepository.Callback<List<TopicProgress>>() {
+                    @Override
+                    public void onResult(List<TopicProgress> rows) {
+                        finishLoad(email, rows);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        // The next read or preload tries again
+                        Log.e(TAG, "Failed to load progress", e);
+                        finishLoad(email, null);
+                    }
+                });
+    }
+
+    // Installs rows, unless the load failed (null) or another has superseded it, then
+    // tells everyone waiting
+    private void finishLoad(String email, List<TopicProgress> rows) {
+        List<Runnable> callbacks;
+        synchronized (this) {
+            // A newer load is running; its waiters are called when it finishes
+            if (!email.equals(loadingEmail)) return;
+            loadingEmail = null;
+            if (rows != null && email.equals(currentEmail())) {
+                install(email, rows);
+                for (Runnable change : pendingChanges) {
+                    change.run();
+                }
+            }
+            pendingChanges.clear();
+            callbacks = new ArrayList<>(loadedCallbacks);
+            loadedCallbacks.clear();
+        }
+        // Outside the lock: screens read the snapshot from here
+        for (Runnable callback : callbacks) {
+            callback.run();
+        }
+    }
+
+    private void install(String email, List<TopicProgress> rows) {
+        snapshotEmail = email;
+        completedTopics = new CompletedTopicSet();
+        scores = new SparseIntArray(rows.size());
+        for (TopicProgress row : rows) {
+            if (row.isCompleted()) completedTopics.add(row.getTopicId());
+            scores.put(row.getTopicId(), row.getScore());
+        }
+    }
+
+    // One-time move of the preference-based progress into user_progress. The
+    // preferences were not per user; they go to whoever signs in first after the
+    // update. Queued on the write thread ahead of the snapshot load, so the snapshot
+    // includes them, and cleared only once the rows are committed.
+    private void importLegacyProgress(String email) {
+        if (legacyImported) return;
+        legacyImported = true;
+        LearningRepository.getInstance(context).importProgress(email, this::readLegacyScores,
+                new LearningRepository.Callback<Integer>() {
+                    @Override
+                    public void onResult(Integer migrated) {
+                        legacyPreferences.edit().clear().apply();
+                        if (migrated > 0) {
+                            Log.i(TAG, "Moved " + migrated + " topics of preference progress into user_progress");
+                        }
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        // Kept for the next sign-in
+                        Log.e(TAG, "Failed to move preference progress", e);
+                        synchronized (LearningProgressManager.this) {
+                            legacyImported = false;
+                        }
+                    }
+                });
     }
 
-    private void saveCompletedTopics(Set<String> completedTopics) {
-        preferences.edit().putStringSet(KEY_COMPLETED_TOPICS, completedTopics).apply();
+    // Topic id to score; topics completed without an assessment score 0
+    private Map<Integer, Integer> readLegacyScores() {
+        Map<String, ?> legacy = legacyPreferences.getAll();
+        Map<Integer, Integer> scores = new HashMap<>();
+        String scorePrefix = KEY_ASSESSMENT_SCORES + "_";
+        for (String key : legacy.keySet()) {
+            Object value = legacy.get(key);
+            try {
+                if (key.equals(KEY_COMPLETED_TOPIC_BITS) && value instanceof String) {
+                    byte[] bits = Base64.decode((String) value, Base64.NO_WRAP);
+                    for (int topicId : CompletedTopicSet.fromByteArray(bits).toArray()) {
+                        scores.putIfAbsent(topicId, 0);
+                    }
+                } else if (key.equals(KEY_COMPLETED_TOPICS) && value instanceof Set) {
+                    for (Object id : (Set<?>) value) {
+                        try {
+                            scores.putIfAbsent(Integer.parseInt(String.valueOf(id)), 0);
+                        } catch (NumberFormatException e) {
+                            Log.w(TAG, "Skipping completed topic id " + id);
+                        }
+                    }
+                } else if (key.startsWith(scorePrefix) && value instanceof Integer) {
+                    scores.put(Integer.parseInt(key.substring(scorePrefix.length())), (Integer) value);
+                }
+            } catch (IllegalArgumentException e) {
+                // NumberFormatException included
+                Log.w(TAG, "Skipping unreadable preference " + key, e);
+            }
+        }
+        return scores;
     }
 
-    public void clearProgress() {
-        preferences.edit().clear().apply();
+    private String currentEmail() {
+        String email = ProfileManager.getInstance(context).getEmail();
+        return email == null ? "" : email;
     }
-} 
\ No newline at end of file
+}
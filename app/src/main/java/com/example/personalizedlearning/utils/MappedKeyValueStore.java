@@ -0,0 +1,413 @@
+package com.example.personalizedlearning.utils;
+
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Small persistent key-value store for settings, kept as an append-only log in a
+ * memory-mapped file. Replaces SharedPreferences where they were read on the main
+ * thread: opening replays the log into a map once, reads are map lookups, and a
+ * commit appends one record to the mapping instead of rewriting a whole XML file.
+ *
+ * Each {@link Editor#commit} is one record: a length, the CRC32 of the payload and
+ * the payload holding every change of the edit, so an edit is applied entirely or
+ * not at all. The length is written last. Opening stops at the first record that
+ * is incomplete or fails its checksum, which drops a write torn by a crash and
+ * keeps everything before it. Once the log outgrows twice its size after the last
+ * compaction it is rewritten with only the live entries to a temporary file that
+ * is then renamed over the log. A compaction that fails is logged and leaves the log
+ * as it was; the commit that triggered it has already succeeded.
+ *
+ * Records reach the page cache when committed, so they survive the process being
+ * killed; {@link #sync} also forces them to the storage device. Keys and string
+ * values are limited to 64 KB of modified UTF-8. Thread-safe.
+ */
+public final class MappedKeyValueStore implements Closeable {
+    private static final String TAG = "MappedKeyValueStore";
+    private static final int MAGIC = 0x504c4b56; // "PLKV"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    // Length and checksum in front of each payload
+    private static final int RECORD_HEADER_SIZE = 8;
+    static final int INITIAL_CAPACITY = 4096;
+    static final int MIN_COMPACT_BYTES = 16 * 1024;
+
+    private static final byte OP_REMOVE = 0;
+    private static final byte OP_STRING = 1;
+    private static final byte OP_BOOLEAN = 2;
+    private static final byte OP_INT = 3;
+    private static final byte OP_LONG = 4;
+    private static final byte OP_CLEAR = 5;
+
+    private final File file;
+    private final Map<String, Object> values = new HashMap<>();
+    private RandomAccessFile randomAccessFile;
+    private MappedByteBuffer buffer;
+    // Offset just past the last valid record
+    private int end;
+    private int compactAt;
+
+    private MappedKeyValueStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens the store in {@code file}, creating it if needed, and replays its log.
+     * Does disk I/O; call it off the main thread.
+     */
+    public static MappedKeyValueStore open(File file) throws IOException {
+        MappedKeyValueStore store = new MappedKeyValueStore(file);
+        store.load();
+        return store;
+    }
+
+    public synchronized String getString(String key, String defValue) {
+        Object value = values.get(key);
+        return value != null ? (String) value : defValue;
+    }
+
+    public synchronized boolean getBoolean(String key, boolean defValue) {
+        Object value = values.get(key);
+        return value != null ? (Boolean) value : defValue;
+    }
+
+    public synchronized int getInt(String key, int defValue) {
+        Object value = values.get(key);
+        return value != null ? (Integer) value : defValue;
+    }
+
+    public synchronized long getLong(String key, long defValue) {
+        Object value = values.get(key);
+        return value != null ? (Long) value : defValue;
+    }
+
+    public synchronized boolean contains(String key) {
+        return values.containsKey(key);
+    }
+
+    public synchronized boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    /** Size of the log in bytes, header included. */
+    synchronized int getLogSize() {
+        return end;
+    }
+
+    /** Starts an edit; nothing changes until {@link Editor#commit}. */
+    public Editor edit() {
+        return new Editor();
+    }
+
+    /** Forces committed records to the storage device. */
+    public synchronized void sync() {
+        checkOpen();
+        buffer.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (randomAccessFile == null) return;
+        randomAccessFile.close();
+        randomAccessFile = null;
+        buffer = null;
+    }
+
+    /**
+     * Changes to apply together. As with SharedPreferences, {@link #clear} takes
+     * effect before the other changes of the edit, whatever the call order.
+     */
+    public final class Editor {
+        private final Map<String, Object> changes = new HashMap<>();
+        private boolean clear;
+
+        private Editor() {
+        }
+
+        public Editor putString(String key, String value) {
+            changes.put(key, value);
+            return this;
+        }
+
+        public Editor putBoolean(String key, boolean value) {
+            changes.put(key, value);
+            return this;
+        }
+
+        public Editor putInt(String key, int value) {
+            changes.put(key, value);
+            return this;
+        }
+
+        public Editor putLong(String key, long value) {
+            changes.put(key, value);
+            return this;
+        }
+
+        public Editor remove(String key) {
+            changes.put(key, null);
+            return this;
+        }
+
+        public Editor clear() {
+            clear = true;
+            return this;
+        }
+
+        /**
+         * Appends the edit as one record and applies it to the in-memory map. Throws
+         * only if the record could not be appended.
+         */
+        public void commit() throws IOException {
+            if (!clear && changes.isEmpty()) return;
+            byte[] payload = encode(clear, changes);
+            synchronized (MappedKeyValueStore.this) {
+                append(payload);
+                apply(clear, changes);
+                if (end >= compactAt) {
+                    try {
+                        compact();
+                    } catch (IOException e) {
+                        // The edit is in the log already; the next try waits for it to double again
+                        Log.e(TAG, "Failed to compact " + file, e);
+                    }
+                }
+            }
+        }
+    }
+
+    private void load() throws IOException {
+        // A leftover means a compaction died before its rename; the log is still whole
+        File temp = tempFile();
+        if (temp.exists() && !temp.delete()) {
+            throw new IOException("Cannot delete " + temp);
+        }
+
+        map(Math.max(INITIAL_CAPACITY, (int) Math.min(file.length(), Integer.MAX_VALUE)));
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            // New file, or not one of ours
+            reset();
+        } else {
+            end = replay();
+            // Clear what followed the last good record so later appends cannot run into it
+            for (int i = end; i < buffer.capacity(); i++) {
+                if (buffer.get(i) != 0) {
+                    zero(end, buffer.capacity());
+                    break;
+                }
+            }
+        }
+        compactAt = Math.max(MIN_COMPACT_BYTES, end * 2);
+    }
+
+    private int replay() throws IOException {
+        int offset = HEADER_SIZE;
+        CRC32 crc = new CRC32();
+        while (offset + RECORD_HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || length > buffer.capacity() - offset - RECORD_HEADER_SIZE) break;
+
+            byte[] payload = new byte[length];
+            ByteBuffer slice = buffer.duplicate();
+            slice.position(offset + RECORD_HEADER_SIZE);
+            slice.get(payload);
+            crc.reset();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) break;
+
+            decodeInto(payload);
+            offset += RECORD_HEADER_SIZE + length;
+        }
+        return offset;
+    }
+
+    private void append(byte[] payload) throws IOException {
+        checkOpen();
+        int needed = end + RECORD_HEADER_SIZE + payload.length;
+        if (needed > buffer.capacity()) {
+            int capacity = buffer.capacity();
+            while (capacity < needed) {
+                capacity *= 2;
+            }
+            map(capacity);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(end + RECORD_HEADER_SIZE);
+        slice.put(payload);
+        buffer.putInt(end + 4, (int) crc.getValue());
+        // Last, so a record is only visible once it is complete
+        buffer.putInt(end, payload.length);
+        end = needed;
+    }
+
+    private void compact() throws IOException {
+        // Until it succeeds, keep appending to the old log
+        compactAt = end * 2;
+        byte[] payload = encode(false, values);
+        File temp = tempFile();
+        try (RandomAccessFile out = new RandomAccessFile(temp, "rw")) {
+            CRC32 crc = new CRC32();
+            crc.update(payload, 0, payload.length);
+            ByteBuffer log = ByteBuffer.allocate(HEADER_SIZE + RECORD_HEADER_SIZE + payload.length);
+            log.putInt(MAGIC).putInt(VERSION);
+            log.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+            log.flip();
+            FileChannel channel = out.getChannel();
+            while (log.hasRemaining()) {
+                channel.write(log);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+
+        randomAccessFile.close();
+        randomAccessFile = null;
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            // The old log is untouched; keep appending to it
+            map(buffer.capacity());
+            throw new IOException("Cannot replace " + file + " with the compacted log");
+        }
+        end = HEADER_SIZE + RECORD_HEADER_SIZE + payload.length;
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < end * 2) {
+            capacity *= 2;
+        }
+        map(capacity);
+        compactAt = Math.max(MIN_COMPACT_BYTES, end * 2);
+    }
+
+    // Maps the first capacity bytes of the file, growing it if shorter
+    private void map(int capacity) throws IOException {
+        if (randomAccessFile == null) {
+            randomAccessFile = new RandomAccessFile(file, "rw");
+        }
+        buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private void reset() {
+        values.clear();
+        zero(0, buffer.capacity());
+        buffer.putInt(4, VERSION);
+        buffer.putInt(0, MAGIC);
+        end = HEADER_SIZE;
+    }
+
+    private void zero(int from, int to) {
+        for (int i = from; i < to; i++) {
+            buffer.put(i, (byte) 0);
+        }
+    }
+
+    private File tempFile() {
+        return new File(file.getPath() + ".tmp");
+    }
+
+    private void checkOpen() {
+        if (randomAccessFile == null) {
+            throw new IllegalStateException("Store is closed");
+        }
+    }
+
+    private void apply(boolean clear, Map<String, Object> changes) {
+        if (clear) {
+            values.clear();
+        }
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            if (change.getValue() == null) {
+                values.remove(change.getKey());
+            } else {
+                values.put(change.getKey(), change.getValue());
+            }
+        }
+    }
+
+    private static byte[] encode(boolean clear, Map<String, Object> changes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(changes.size() + (clear ? 1 : 0));
+        if (clear) {
+            out.writeByte(OP_CLEAR);
+        }
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            Object value = change.getValue();
+            if (value == null) {
+                out.writeByte(OP_REMOVE);
+                out.writeUTF(change.getKey());
+            } else if (value instanceof String) {
+                out.writeByte(OP_STRING);
+                out.writeUTF(change.getKey());
+                out.writeUTF((String) value);
+            } else if (value instanceof Boolean) {
+                out.writeByte(OP_BOOLEAN);
+                out.writeUTF(change.getKey());
+                out.writeBoolean((Boolean) value);
+            } else if (value instanceof Integer) {
+                out.writeByte(OP_INT);
+                out.writeUTF(change.getKey());
+                out.writeInt((Integer) value);
+            } else {
+                out.writeByte(OP_LONG);
+                out.writeUTF(change.getKey());
+                out.writeLong((Long) value);
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    // The checksum has passed, so a payload that does not decode is a bug, not a torn write
+    private void decodeInto(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        int count = in.readInt();
+        boolean clear = false;
+        Map<String, Object> changes = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            byte op = in.readByte();
+            if (op == OP_CLEAR) {
+                clear = true;
+                continue;
+            }
+            String key = in.readUTF();
+            switch (op) {
+                case OP_REMOVE:
+                    changes.put(key, null);
+                    break;
+                case OP_STRING:
+                    changes.put(key, in.readUTF());
+                    break;
+                case OP_BOOLEAN:
+                    changes.put(key, in.readBoolean());
+                    break;
+                case OP_INT:
+                    changes.put(key, in.readInt());
+                    break;
+                case OP_LONG:
+                    changes.put(key, in.readLong());
+                    break;
+                default:
+                    throw new IOException("Unknown record type " + op + " in " + file);
+            }
+        }
+        apply(clear, changes);
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.personalizedlearning.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Salted password hashing with PBKDF2. Stored hashes look like
+ * {@code v1$<iterations>$<salt hex>$<hash hex>}, where version 1 is
+ * PBKDF2WithHmacSHA1 with a 16-byte salt and a 32-byte key. HMAC-SHA1 is the
+ * PBKDF2 variant available on every supported API level; its known weaknesses do
+ * not apply to PBKDF2.
+ *
+ * The work factor is set from a latency budget by {@link #calibrate}, since the
+ * same iteration count costs very different time on different devices. Each hash
+ * records its own iteration count, so hashes made with an older factor still
+ * verify, and {@link #needsRehash} reports them together with the unsalted
+ * SHA-256 hex hashes from earlier versions of the app.
+ *
+ * Hashing takes as long as the budget; call it off the main thread. Thread-safe.
+ */
+public final class PasswordHasher {
+    public static final int VERSION = 1;
+    public static final long DEFAULT_BUDGET_MS = 250;
+    static final int MIN_ITERATIONS = 10_000;
+    static final int MAX_ITERATIONS = 2_000_000;
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA1";
+    private static final String PREFIX = "v" + VERSION + "$";
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BITS = 256;
+    private static final int PROBE_ITERATIONS = 10_000;
+    private static final int LEGACY_HEX_LENGTH = 64;
+
+    private static final SecureRandom random = new SecureRandom();
+
+    private final int iterations;
+
+    public PasswordHasher(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("iterations must be positive: " + iterations);
+        }
+        this.iterations = iterations;
+    }
+
+    /**
+     * Measures this device and returns a hasher whose {@link #hash} takes about
+     * {@code budgetMs}, within [{@link #MIN_ITERATIONS}, {@link #MAX_ITERATIONS}].
+     * Takes roughly twice the probe time; call it off the main thread.
+     */
+    public static PasswordHasher calibrate(long budgetMs) {
+        byte[] salt = new byte[SALT_BYTES];
+        char[] probe = "calibration-probe".toCharArray();
+        // The first run pays for class loading and JIT warm-up
+        derive(probe, salt, PROBE_ITERATIONS);
+        long start = System.nanoTime();
+        derive(probe, salt, PROBE_ITERATIONS);
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+
+        long iterations = PROBE_ITERATIONS * budgetMs * 1_000_000L / elapsedNanos;
+        // Round down to a thousand so recalibrating on the same device gives the same factor
+        iterations = iterations / 1000 * 1000;
+        return new PasswordHasher((int) Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, iterations)));
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /** Returns a new salted hash of {@code password} in the current format. */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] key = derive(password.toCharArray(), salt, iterations);
+        return PREFIX + iterations + "$" + toHex(salt) + "$" + toHex(key);
+    }
+
+    /**
+     * Checks {@code password} against a stored hash in the current or the legacy
+     * format. Empty or unreadable hashes never match.
+     */
+    public boolean verify(String password, String storedHash) {
+        if (storedHash == null || storedHash.isEmpty()) return false;
+
+        if (isLegacy(storedHash)) {
+            byte[] actual = toHex(sha256(password)).getBytes(StandardCharsets.US_ASCII);
+            return MessageDigest.isEqual(actual, storedHash.toLowerCase().getBytes(StandardCharsets.US_ASCII));
+        }
+
+        String[] parts = storedHash.split("\\$");
+        if (parts.length != 4 || !(parts[0] + "$").equals(PREFIX)) return false;
+        try {
+            int storedIterations = Integer.parseInt(parts[1]);
+            byte[] salt = fromHex(parts[2]);
+            byte[] expected = fromHex(parts[3]);
+            if (storedIterations < 1 || salt.length == 0 || expected.length == 0) return false;
+            return MessageDigest.isEqual(derive(password.toCharArray(), salt, storedIterations), expected);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Whether a hash that just verified should be replaced: it is in the legacy
+     * format, or uses fewer iterations than this hasher.
+     */
+    public boolean needsRehash(String storedHash) {
+        if (storedHash == null || !storedHash.startsWith(PREFIX)) return true;
+        String[] parts = storedHash.split("\\$");
+        try {
+            return parts.length != 4 || Integer.parseInt(parts[1]) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static boolean isLegacy(String storedHash) {
+        if (storedHash.length() != LEGACY_HEX_LENGTH) return false;
+        for (int i = 0; i < storedHash.length(); i++) {
+            if (Character.digit(storedHash.charAt(i), 16) < 0) return false;
+        }
+        return true;
+    }
+
+    private static byte[] derive(char[] password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, KEY_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            // Part of every supported platform version
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+            Arrays.fill(password, '\0');
+        }
+    }
+
+    private static byte[] sha256(String password) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    private static byte[] fromHex(String hex) {
+        if (hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("Odd hex length");
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Not hex: " + hex);
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+}
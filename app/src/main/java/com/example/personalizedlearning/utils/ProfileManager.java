@@ -2,19 +2,63 @@ package com.example.personalizedlearning.utils;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Holds the signed-in user's session. The session's {@link MappedKeyValueStore} is
+ * read once, on a background thread started with the first {@link #getInstance}, into
+ * an immutable {@link Session}; every getter is a read of one volatile field and never
+ * waits. Until the read has finished they report {@link Session#LOADING}; screens that
+ * decide something from the session as they open use {@link #whenLoaded}. Sign-in,
+ * sign-out and profile edits swap in a new snapshot, tell the {@link SessionListener}s
+ * on the main thread and append it to the store as one record on that same background
+ * thread, in the order of the swaps.
+ */
 public class ProfileManager {
+    private static final String TAG = "ProfileManager";
+    private static final String STORE_FILE = "profile.kv";
+    // The session used to live in these preferences; they are moved into the store
+    // in the same record as KEY_MIGRATED, and deleted only once that is committed
     private static final String PREF_NAME = "profile_prefs";
+    private static final String KEY_MIGRATED = "migrated";
     private static final String KEY_PROFILE_CREATED = "profile_created";
     private static final String KEY_USERNAME = "username";
     private static final String KEY_EMAIL = "email";
     private static final String KEY_INTERESTS = "interests";
 
     private static ProfileManager instance;
-    private final SharedPreferences preferences;
+    private final Context context;
+    // Runs the load, then every store commit; the store is only touched here
+    private final ExecutorService storeExecutor =
+            Executors.newSingleThreadExecutor(r -> new Thread(r, "profile-session"));
+    // Null until loaded, or if the store could not be opened
+    private MappedKeyValueStore store;
+    // Guarded by this; posted to the main thread once the session is known
+    private final List<Runnable> pendingUntilLoaded = new ArrayList<>();
+    private final List<SessionListener> listeners = new CopyOnWriteArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Null until the store has been read
+    private volatile Session session;
+
+    public interface SessionListener {
+        /** Called on the main thread with the current session, and again after every change. */
+        void onSessionChanged(Session session);
+    }
 
     private ProfileManager(Context context) {
-        preferences = context.getApplicationContext().getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        this.context = context.getApplicationContext();
+        storeExecutor.execute(this::load);
     }
 
     public static synchronized ProfileManager getInstance(Context context) {
@@ -24,44 +68,151 @@ public class ProfileManager {
         return instance;
     }
 
-    public boolean isProfileCreated() {
-        return preferences.getBoolean(KEY_PROFILE_CREATED, false);
+    private void load() {
+        Session loadedSession = Session.SIGNED_OUT;
+        try {
+            store = MappedKeyValueStore.open(new File(context.getFilesDir(), STORE_FILE));
+            if (!store.getBoolean(KEY_MIGRATED, false)) {
+                migrateLegacyPreferences();
+            }
+            loadedSession = new Session(
+                    store.getBoolean(KEY_PROFILE_CREATED, false),
+                    store.getString(KEY_USERNAME, ""),
+                    store.getString(KEY_EMAIL, ""),
+                    store.getString(KEY_INTERESTS, ""));
+        } catch (IOException e) {
+            // The session still works in memory; the user signs in again next launch
+            Log.e(TAG, "Cannot open the session store", e);
+            store = null;
+        }
+        synchronized (this) {
+            // A swap made while loading is newer, and its commit is queued behind this load
+            if (session == null) {
+                publish(loadedSession);
+            }
+        }
     }
 
-    public void setProfileCreated(boolean created) {
-        preferences.edit().putBoolean(KEY_PROFILE_CREATED, created).apply();
+    /** Returns the current session, or {@link Session#LOADING} until it has been read. */
+    public Session getSession() {
+        Session current = session;
+        return current != null ? current : Session.LOADING;
     }
 
-    public void saveProfile(String username, String email, String interests) {
-        SharedPreferences.Editor editor = preferences.edit();
-        editor.putString(KEY_USERNAME, username);
-        editor.putString(KEY_EMAIL, email);
-        editor.putString(KEY_INTERESTS, interests);
-        editor.putBoolean(KEY_PROFILE_CREATED, true);
-        editor.apply();
+    /**
+     * Posts {@code action} to the main thread once the session has been read, right
+     * away if it already has. Always posted, so a screen calling this while creating
+     * its view runs it once the view exists; the action must check that it still does.
+     */
+    public void whenLoaded(Runnable action) {
+        synchronized (this) {
+            if (session == null) {
+                pendingUntilLoaded.add(action);
+                return;
+            }
+        }
+        mainHandler.post(action);
+    }
+
+    /**
+     * Registers {@code listener} and calls it with the current session once that has
+     * been loaded. Listeners tied to a screen must be removed when it is destroyed.
+     */
+    public void addSessionListener(SessionListener listener) {
+        listeners.add(listener);
+        mainHandler.post(() -> {
+            Session current = session;
+            if (current != null && listeners.contains(listener)) {
+                listener.onSessionChanged(current);
+            }
+        });
+    }
+
+    public void removeSessionListener(SessionListener listener) {
+        listeners.remove(listener);
+    }
+
+    public boolean isProfileCreated() {
+        return getSession().isSignedIn();
     }
 
     public String getUsername() {
-        return preferences.getString(KEY_USERNAME, "");
+        return getSession().getUsername();
     }
 
     public String getEmail() {
-        return preferences.getString(KEY_EMAIL, "");
+        return getSession().getEmail();
     }
 
     public String getInterests() {
-        return preferences.getString(KEY_INTERESTS, "");
+        return getSession().getInterests();
+    }
+
+    /** Signs in, or updates the signed-in user's profile. */
+    public void saveProfile(String username, String email, String interests) {
+        swap(new Session(true, username, email, interests));
+    }
+
+    /** Ends the session and removes the stored profile. */
+    public void signOut() {
+        swap(Session.SIGNED_OUT);
+    }
+
+    private synchronized void swap(Session next) {
+        // Posted and queued under the lock so listeners and the store see the swaps in order
+        publish(next);
+        storeExecutor.execute(() -> {
+            if (store == null) return;
+            try {
+                write(next);
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot save the session", e);
+            }
+        });
     }
 
-    public void clearProfile() {
-        preferences.edit().clear().apply();
+    // One record, so a crash leaves either the old session or the new one
+    private void write(Session next) throws IOException {
+        MappedKeyValueStore.Editor editor = store.edit().clear().putBoolean(KEY_MIGRATED, true);
+        if (next.isSignedIn()) {
+            editor.putString(KEY_USERNAME, next.getUsername());
+            editor.putString(KEY_EMAIL, next.getEmail());
+            editor.putString(KEY_INTERESTS, next.getInterests());
+            editor.putBoolean(KEY_PROFILE_CREATED, true);
+        }
+        editor.commit();
+    }
+
+    private void migrateLegacyPreferences() throws IOException {
+        SharedPreferences preferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        MappedKeyValueStore.Editor editor = store.edit();
+        // A store written before the marker existed already holds a newer session
+        if (store.isEmpty() && preferences.getBoolean(KEY_PROFILE_CREATED, false)) {
+            editor.putString(KEY_USERNAME, preferences.getString(KEY_USERNAME, ""));
+            editor.putString(KEY_EMAIL, preferences.getString(KEY_EMAIL, ""));
+            editor.putString(KEY_INTERESTS, preferences.getString(KEY_INTERESTS, ""));
+            editor.putBoolean(KEY_PROFILE_CREATED, true);
+        }
+        editor.putBoolean(KEY_MIGRATED, true).commit();
+        // Only now: a failed commit above keeps the preferences for the next launch
+        context.deleteSharedPreferences(PREF_NAME);
+    }
+
+    // Called with the lock held
+    private void publish(Session next) {
+        session = next;
+        dispatch(next);
+        for (Runnable action : pendingUntilLoaded) {
+            mainHandler.post(action);
+        }
+        pendingUntilLoaded.clear();
     }
 
-    public void clearSession() {
-        SharedPreferences.Editor editor = preferences.edit();
-        editor.remove("username");
-        editor.remove("email");
-        editor.remove("interests");
-        editor.apply();
+    private void dispatch(Session changed) {
+        mainHandler.post(() -> {
+            for (SessionListener listener : listeners) {
+                listener.onSessionChanged(changed);
+            }
+        });
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,46 @@
+package com.example.personalizedlearning.utils;
+
+/**
+ * Immutable snapshot of the signed-in user, as held by {@link ProfileManager}.
+ * A sign-in, sign-out or profile edit replaces the whole snapshot, so the fields
+ * read from one instance always belong together.
+ */
+public final class Session {
+    public static final Session SIGNED_OUT = new Session(false, "", "", "");
+    /** Returned until the stored session has been read; signed out, but not for sure. */
+    public static final Session LOADING = new Session(false, "", "", "");
+
+    private final boolean signedIn;
+    private final String username;
+    private final String email;
+    private final String interests;
+
+    Session(boolean signedIn, String username, String email, String interests) {
+        this.signedIn = signedIn;
+        this.username = username == null ? "" : username;
+        this.email = email == null ? "" : email;
+        this.interests = interests == null ? "" : interests;
+    }
+
+    public boolean isSignedIn() {
+        return signedIn;
+    }
+
+    /** Whether this is {@link #LOADING}: the stored session is still being read. */
+    public boolean isLoading() {
+        return this == LOADING;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    /** Email of the signed-in user, or an empty string */
+    public String getEmail() {
+        return email;
+    }
+
+    public String getInterests() {
+        return interests;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.personalizedlearning.db;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class DeflateCodecTest {
+    private final DeflateCodec codec = DeflateCodec.INSTANCE;
+
+    @Test
+    public void roundTripsTextAndShrinksRepetitiveBodies() {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            body.append("• Activities and fragments make up screen ").append(i).append(" — ünïcödé\n");
+        }
+        String text = body.toString();
+
+        byte[] encoded = codec.encode(text);
+
+        assertEquals(text, codec.decode(encoded));
+        assertTrue(encoded.length < text.length() / 4);
+    }
+
+    @Test
+    public void roundTripsEmptyText() {
+        assertEquals("", codec.decode(codec.encode("")));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsTruncatedData() {
+        byte[] encoded = codec.encode("Study material body that is long enough to be cut short");
+        codec.decode(Arrays.copyOf(encoded, encoded.length / 2));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsUnknownEncoding() {
+        ContentCodec.forId(99);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.personalizedlearning.db;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    public void reportsZeroWhenEmpty() {
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.percentileMicros(50));
+    }
+
+    @Test
+    public void reportsPercentilesAsBucketUpperBounds() {
+        for (int i = 0; i < 90; i++) {
+            histogram.record(80_000);      // 80 us
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(4_000_000);   // 4 ms
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(100, histogram.percentileMicros(50));
+        assertEquals(100, histogram.percentileMicros(90));
+        // The bucket bound is capped by the slowest call actually seen
+        assertEquals(4_000, histogram.percentileMicros(95));
+        assertEquals(4_000, histogram.getMaxMicros());
+    }
+
+    @Test
+    public void reportsMaximumForTheOpenEndedBucket() {
+        histogram.record(50_000);
+        histogram.record(750_000_000);     // 750 ms
+
+        assertEquals(750_000, histogram.percentileMicros(99));
+        assertEquals((50 + 750_000) / 2, histogram.getMeanMicros());
+    }
+}
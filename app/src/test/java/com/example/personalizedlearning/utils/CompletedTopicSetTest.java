@@ -0,0 +1,73 @@
+package com.example.personalizedlearning.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CompletedTopicSetTest {
+    private final CompletedTopicSet set = new CompletedTopicSet();
+
+    @Test
+    public void tracksMembershipAndSize() {
+        assertTrue(set.add(1));
+        assertTrue(set.add(64));
+        assertTrue(set.add(9_999));
+        assertFalse(set.add(64));
+
+        assertTrue(set.contains(64));
+        assertFalse(set.contains(63));
+        assertFalse(set.contains(100_000));
+        assertFalse(set.contains(-1));
+        assertEquals(3, set.size());
+
+        assertTrue(set.remove(64));
+        assertFalse(set.remove(64));
+        assertFalse(set.contains(64));
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    public void roundTripsThroughBytes() {
+        for (int id = 0; id < 10_000; id += 3) {
+            set.add(id);
+        }
+
+        CompletedTopicSet copy = CompletedTopicSet.fromByteArray(set.toByteArray());
+
+        assertEquals(set.size(), copy.size());
+        for (int id = 0; id < 10_000; id++) {
+            assertEquals(set.contains(id), copy.contains(id));
+        }
+    }
+
+    @Test
+    public void trimsTrailingEmptyWords() {
+        set.add(5_000);
+        set.remove(5_000);
+        set.add(3);
+
+        assertEquals(1 + Long.BYTES, set.toByteArray().length);
+        assertEquals(0, CompletedTopicSet.fromByteArray(new CompletedTopicSet().toByteArray()).size());
+    }
+
+    @Test
+    public void listsIdsInAscendingOrder() {
+        set.add(9_999);
+        set.add(0);
+        set.add(64);
+        set.add(63);
+
+        assertArrayEquals(new int[] { 0, 63, 64, 9_999 }, set.toArray());
+        assertEquals(0, new CompletedTopicSet().toArray().length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeIds() {
+        set.add(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownFormat() {
+        CompletedTopicSet.fromByteArray(new byte[] { 9 });
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.personalizedlearning.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+public class MappedKeyValueStoreTest {
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("store", ".kv");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+        new File(file.getPath() + ".tmp").delete();
+    }
+
+    @Test
+    public void readsBackCommittedValuesAfterReopening() throws IOException {
+        try (MappedKeyValueStore store = MappedKeyValueStore.open(file)) {
+            assertTrue(store.isEmpty());
+            store.edit()
+                    .putString("email", "ada@example.com")
+                    .putBoolean("profile_created", true)
+                    .putInt("count", 7)
+                    .putLong("since", 1L << 40)
+                    .commit();
+            store.edit().remove("count").commit();
+        }
+
+        try (MappedKeyValueStore store = MappedKeyValueStore.open(file)) {
+            assertEquals("ada@example.com", store.getString("email", ""));
+            assertTrue(store.getBoolean("profile_created", false));
+            assertEquals(1L << 40, store.getLong("since", 0));
+            assertFalse(store.contains("count"));
+            assertEquals(-1, store.getInt("count", -1));
+        }
+    }
+
+    @Test
+    public void appliesClearBeforeTheRestOfTheEdit() throws IOException {
+        try (MappedKeyValueStore store = MappedKeyValueStore.open(file)) {
+            store.edit().putString("username", "ada").putString("interests", "math").commit();
+            store.edit().putString("username", "grace").clear().commit();
+        }
+
+        try (MappedKeyValueStore store = MappedKeyValueStore.open(file)) {
+            assertEquals("grace", store.getString("username", ""));
+            assertFalse(store.contains("interests"));
+        }
+    }
+
+    @Test
+    public void dropsATornTrailingRecordAndKeepsTheRest() throws IOException {
+        int sizeBeforeLastEdit;
+        try (MappedKeyValueStore store = MappedKeyValueStore.open(file)) {
+            store.edit().putString("email", "ada@example.com").commit();
+            sizeBeforeLastEdit = store.getLogSize();
+            store.edit().putString("email", "grace@example.com").putString("username", "grace").commit();
+        }
+
+        // Damage the payload of the last record, as a write cut short by a crash would
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.seek(sizeBeforeLastEdit + 12);
+            raw.write(0x7f);
+        }
+
+        try (MappedKeyValueStore store = MappedKeyValueStore.open(file)) {
+            assertEquals("ada@example.com", store.getString("email", ""));
+            assertFalse(store.contains("username"));
+            assertEquals(sizeBeforeLastEdit, store.getLogSize());
+
+            // Appends after recovery replace the damaged record
+            store.edit().putString("username", "ada").commit();
+        }
+
+        try (MappedKeyValueStore store = MappedKeyValueStore.open(file)) {
+            assertEquals("ada@example.com", store.getString("email", ""));
+            assertEquals("ada", store.getString("username", ""));
+        }
+    }
+
+    @Test
+    public void compactsOverwrittenValues() throws IOException {
+        try (MappedKeyValueStore store = MappedKeyValueStore.open(file)) {
+            for (int i = 0; i < 10_000; i++) {
+                store.edit().putInt("counter", i).putString("email", "user" + (i % 10) + "@example.com").commit();
+            }
+            assertTrue(store.getLogSize() < MappedKeyValueStore.MIN_COMPACT_BYTES);
+        }
+
+        assertTrue(file.length() <= 2 * MappedKeyValueStore.MIN_COMPACT_BYTES);
+        try (MappedKeyValueStore store = MappedKeyValueStore.open(file)) {
+            assertEquals(9_999, store.getInt("counter", -1));
+            assertEquals("user9@example.com", store.getString("email", ""));
+        }
+    }
+
+    @Test
+    public void ignoresALeftoverCompactionFile() throws IOException {
+        try (MappedKeyValueStore store = MappedKeyValueStore.open(file)) {
+            store.edit().putString("email", "ada@example.com").commit();
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        assertTrue(temp.createNewFile());
+
+        try (MappedKeyValueStore store = MappedKeyValueStore.open(file)) {
+            assertEquals("ada@example.com", store.getString("email", ""));
+        }
+        assertFalse(temp.exists());
+    }
+
+    @Test
+    public void startsEmptyOverAForeignFile() throws IOException {
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.write("<?xml version='1.0'?>".getBytes("UTF-8"));
+        }
+
+        try (MappedKeyValueStore store = MappedKeyValueStore.open(file)) {
+            assertTrue(store.isEmpty());
+            store.edit().putBoolean("profile_created", true).commit();
+        }
+
+        try (MappedKeyValueStore store = MappedKeyValueStore.open(file)) {
+            assertTrue(store.getBoolean("profile_created", false));
+        }
+    }
+}
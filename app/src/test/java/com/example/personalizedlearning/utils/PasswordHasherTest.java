@@ -0,0 +1,78 @@
+package com.example.personalizedlearning.utils;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import static org.junit.Assert.*;
+
+public class PasswordHasherTest {
+    private final PasswordHasher hasher = new PasswordHasher(PasswordHasher.MIN_ITERATIONS);
+
+    @Test
+    public void verifiesItsOwnSaltedHashes() {
+        String first = hasher.hash("secret1");
+        String second = hasher.hash("secret1");
+
+        assertTrue(first.startsWith("v1$" + PasswordHasher.MIN_ITERATIONS + "$"));
+        assertFalse(first.equals(second));
+        assertTrue(hasher.verify("secret1", first));
+        assertTrue(hasher.verify("secret1", second));
+        assertFalse(hasher.verify("secret2", first));
+        assertFalse(hasher.needsRehash(first));
+    }
+
+    @Test
+    public void verifiesLegacyHashesAndAsksForRehash() {
+        // Unsalted SHA-256 hex, as the sign-in and sign-up screens used to store it
+        String legacy = sha256Hex("secret1");
+
+        assertTrue(hasher.verify("secret1", legacy));
+        assertTrue(hasher.verify("secret1", legacy.toUpperCase()));
+        assertFalse(hasher.verify("secret2", legacy));
+        assertTrue(hasher.needsRehash(legacy));
+        assertFalse(hasher.verify("secret1", sha256Hex("secret2")));
+    }
+
+    @Test
+    public void asksForRehashWhenTheWorkFactorGrows() {
+        String weaker = hasher.hash("secret1");
+        PasswordHasher stronger = new PasswordHasher(PasswordHasher.MIN_ITERATIONS * 2);
+
+        assertTrue(stronger.verify("secret1", weaker));
+        assertTrue(stronger.needsRehash(weaker));
+    }
+
+    @Test
+    public void rejectsEmptyAndMalformedHashes() {
+        assertFalse(hasher.verify("", ""));
+        assertFalse(hasher.verify("secret1", null));
+        assertFalse(hasher.verify("secret1", "v1$abc$00$00"));
+        assertFalse(hasher.verify("secret1", "v1$1000$zz$00"));
+        assertFalse(hasher.verify("secret1", "v2$1000$00$00"));
+        assertFalse(hasher.verify("secret1", "secret1"));
+    }
+
+    @Test
+    public void calibratesWithinBounds() {
+        int iterations = PasswordHasher.calibrate(50).getIterations();
+
+        assertTrue(iterations >= PasswordHasher.MIN_ITERATIONS);
+        assertTrue(iterations <= PasswordHasher.MAX_ITERATIONS);
+    }
+
+    private static String sha256Hex(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+}